@@ -1,5 +1,6 @@
 package com.wmm.app.config;
 
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -12,6 +13,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
+    private final InventoryImport inventoryImport = new InventoryImport();
+    private final Cart cart = new Cart();
+    private final VisibleStock visibleStock = new VisibleStock();
 
     // jhipster-needle-application-properties-property
 
@@ -19,6 +23,18 @@ public class ApplicationProperties {
         return liquibase;
     }
 
+    public InventoryImport getInventoryImport() {
+        return inventoryImport;
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+
+    public VisibleStock getVisibleStock() {
+        return visibleStock;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +49,67 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    public static class InventoryImport {
+
+        // сколько складов одной загрузки обрабатывать параллельно (каждый занимает соединение с БД)
+        private int partitionThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+        // очередь складов, ждущих свободного потока; переполнение прерывает загрузку
+        private int partitionQueueCapacity = 100;
+
+        public int getPartitionThreads() {
+            return partitionThreads;
+        }
+
+        public void setPartitionThreads(int partitionThreads) {
+            this.partitionThreads = partitionThreads;
+        }
+
+        public int getPartitionQueueCapacity() {
+            return partitionQueueCapacity;
+        }
+
+        public void setPartitionQueueCapacity(int partitionQueueCapacity) {
+            this.partitionQueueCapacity = partitionQueueCapacity;
+        }
+    }
+
+    public static class Cart {
+
+        // срок резерва корзины; каждый heartbeat продлевает его от текущего момента
+        private Duration reservationTtl = Duration.ofMinutes(1);
+
+        public Duration getReservationTtl() {
+            return reservationTtl;
+        }
+
+        public void setReservationTtl(Duration reservationTtl) {
+            this.reservationTtl = reservationTtl;
+        }
+    }
+
+    public static class VisibleStock {
+
+        // потоки отправки событий SSE
+        private int streamThreads = 4;
+        // подписчики, ждущие потока отправки; при переполнении отправка откладывается до следующего изменения
+        private int streamQueueCapacity = 10_000;
+
+        public int getStreamThreads() {
+            return streamThreads;
+        }
+
+        public void setStreamThreads(int streamThreads) {
+            this.streamThreads = streamThreads;
+        }
+
+        public int getStreamQueueCapacity() {
+            return streamQueueCapacity;
+        }
+
+        public void setStreamQueueCapacity(int streamQueueCapacity) {
+            this.streamQueueCapacity = streamQueueCapacity;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
@@ -6,13 +6,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
 import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import tech.jhipster.async.ExceptionHandlingAsyncTaskExecutor;
 
 @Configuration
@@ -24,9 +28,17 @@ public class AsyncConfiguration implements AsyncConfigurer {
     private static final Logger LOG = LoggerFactory.getLogger(AsyncConfiguration.class);
 
     private final TaskExecutionProperties taskExecutionProperties;
+    private final TaskSchedulingProperties taskSchedulingProperties;
+    private final ApplicationProperties applicationProperties;
 
-    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
+    public AsyncConfiguration(
+        TaskExecutionProperties taskExecutionProperties,
+        TaskSchedulingProperties taskSchedulingProperties,
+        ApplicationProperties applicationProperties
+    ) {
         this.taskExecutionProperties = taskExecutionProperties;
+        this.taskSchedulingProperties = taskSchedulingProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -41,6 +53,71 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Планировщик {@code @Scheduled}. Объявлен явно: при других {@link TaskScheduler} ниже Spring Boot свой не создаёт.
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(taskSchedulingProperties.getPool().getSize());
+        scheduler.setThreadNamePrefix(taskSchedulingProperties.getThreadNamePrefix());
+        return scheduler;
+    }
+
+    /**
+     * Склады одной загрузки остатков: каждый поток держит соединение с БД на время своего склада.
+     */
+    @Bean(name = "inventoryImportExecutor")
+    public AsyncTaskExecutor inventoryImportExecutor() {
+        ApplicationProperties.InventoryImport props = applicationProperties.getInventoryImport();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(props.getPartitionThreads());
+        executor.setMaxPoolSize(props.getPartitionThreads());
+        executor.setQueueCapacity(props.getPartitionQueueCapacity());
+        executor.setThreadNamePrefix("inventory-import-");
+        // начатые склады дописываются до конца
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Отправка событий видимых остатков подписчикам; у подписчика в очереди не больше одной задачи.
+     */
+    @Bean(name = "visibleStockStreamExecutor")
+    public AsyncTaskExecutor visibleStockStreamExecutor() {
+        ApplicationProperties.VisibleStock props = applicationProperties.getVisibleStock();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(props.getStreamThreads());
+        executor.setMaxPoolSize(props.getStreamThreads());
+        executor.setQueueCapacity(props.getStreamQueueCapacity());
+        executor.setThreadNamePrefix("visible-stock-stream-");
+        return executor;
+    }
+
+    /**
+     * Отложенный сброс очереди пересчёта видимых остатков. Один поток: сбросы не пересекаются.
+     */
+    @Bean(name = "visibleStockRecalcScheduler")
+    public TaskScheduler visibleStockRecalcScheduler() {
+        return singleThreadScheduler("visible-stock-recalc-");
+    }
+
+    /**
+     * Колесо истечения резервов корзины и их запись в БД.
+     */
+    @Bean(name = "cartReservationScheduler")
+    public TaskScheduler cartReservationScheduler() {
+        return singleThreadScheduler("cart-reservations-");
+    }
+
+    private static ThreadPoolTaskScheduler singleThreadScheduler(String threadNamePrefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        return scheduler;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
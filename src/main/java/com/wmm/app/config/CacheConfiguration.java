@@ -67,6 +67,9 @@ public class CacheConfiguration {
             createCache(cm, com.wmm.app.domain.MechanicTile.class.getName());
             createCache(cm, com.wmm.app.domain.MechanicTile.class.getName() + ".categories");
             createCache(cm, com.wmm.app.domain.MechanicTile.class.getName() + ".warehouses");
+
+            // ответы оформления заявки по Idempotency-Key
+            createCache(cm, com.wmm.app.service.CheckoutIdempotencyService.RESPONSES_CACHE);
             // jhipster-needle-ehcache-add-entry
         };
     }
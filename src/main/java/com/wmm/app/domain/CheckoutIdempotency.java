@@ -0,0 +1,122 @@
+package com.wmm.app.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Ключ идемпотентности оформления заявки и сохранённый ответ на первый запрос с этим ключом.
+ */
+@Entity
+@Table(name = "checkout_idempotency", uniqueConstraints = { @UniqueConstraint(columnNames = { "login", "idempotency_key" }) })
+public class CheckoutIdempotency implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @Column(name = "login", nullable = false, length = 64)
+    private String login;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // JSON ответа; пусто, пока первый запрос ещё выполняется
+    @Column(name = "response", columnDefinition = "text")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // --- Getters and Setters ---
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    // --- equals & hashCode ---
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CheckoutIdempotency)) return false;
+        CheckoutIdempotency that = (CheckoutIdempotency) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    // --- toString ---
+
+    @Override
+    public String toString() {
+        return (
+            "CheckoutIdempotency{" +
+            "id=" +
+            id +
+            ", login='" +
+            login +
+            '\'' +
+            ", idempotencyKey='" +
+            idempotencyKey +
+            '\'' +
+            ", createdAt=" +
+            createdAt +
+            '}'
+        );
+    }
+}
@@ -36,6 +36,14 @@ public class InventoryUpload implements Serializable {
     @Column(name = "storage_types_found", columnDefinition = "text")
     private String storageTypesFound;
 
+    // SHA-256 содержимого файла
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // JSON-строка: {"BUD":"…","CLD":"…"} — отпечаток строк по складу
+    @Column(name = "storage_type_fingerprints", columnDefinition = "text")
+    private String storageTypeFingerprints;
+
     @OneToMany(mappedBy = "upload", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<InventoryRow> rows = new ArrayList<>();
 
@@ -104,6 +112,22 @@ public class InventoryUpload implements Serializable {
         this.storageTypesFound = storageTypesFound;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getStorageTypeFingerprints() {
+        return storageTypeFingerprints;
+    }
+
+    public void setStorageTypeFingerprints(String storageTypeFingerprints) {
+        this.storageTypeFingerprints = storageTypeFingerprints;
+    }
+
     public List<InventoryRow> getRows() {
         return rows;
     }
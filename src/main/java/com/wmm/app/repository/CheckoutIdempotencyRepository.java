@@ -0,0 +1,42 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.CheckoutIdempotency;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CheckoutIdempotencyRepository extends JpaRepository<CheckoutIdempotency, Long> {
+    Optional<CheckoutIdempotency> findByLoginAndIdempotencyKey(String login, String idempotencyKey);
+
+    /**
+     * Занимает ключ за текущим запросом. Параллельный запрос с тем же ключом получит 0 и не будет выполнен повторно.
+     *
+     * @return 1, если ключ занят этим вызовом
+     */
+    @Modifying
+    @Query(
+        value = """
+            insert into checkout_idempotency (id, login, idempotency_key, request_hash, created_at)
+            values (nextval('sequence_generator'), :login, :key, :requestHash, :createdAt)
+            on conflict (login, idempotency_key) do nothing
+        """,
+        nativeQuery = true
+    )
+    int claim(
+        @Param("login") String login,
+        @Param("key") String idempotencyKey,
+        @Param("requestHash") String requestHash,
+        @Param("createdAt") Instant createdAt
+    );
+
+    @Modifying
+    @Query("update CheckoutIdempotency c set c.response = :response where c.login = :login and c.idempotencyKey = :key")
+    int complete(@Param("login") String login, @Param("key") String idempotencyKey, @Param("response") String response);
+
+    @Modifying
+    @Query("delete from CheckoutIdempotency c where c.createdAt < :threshold")
+    int deleteCreatedBefore(@Param("threshold") Instant threshold);
+}
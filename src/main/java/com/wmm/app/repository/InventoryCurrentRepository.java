@@ -6,33 +6,48 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface InventoryCurrentRepository extends JpaRepository<InventoryCurrent, Long> {
+public interface InventoryCurrentRepository
+    extends
+        InventoryCurrentRepositoryWithBulkUpsert,
+        InventoryCurrentRepositoryWithStockDecrement,
+        InventoryCurrentRepositoryWithSearch,
+        JpaRepository<InventoryCurrent, Long> {
     Optional<InventoryCurrent> findByStorageTypeAndMaterial(String storageType, String material);
     Page<InventoryCurrent> findAllByStorageType(Pageable pageable, String storageType);
-    Page<InventoryCurrent> findByStorageTypeAndMaterialContainingIgnoreCase(Pageable pageable, String storageType, String material);
-    Page<InventoryCurrent> findByStorageTypeAndMaterialDescriptionContainingIgnoreCase(
-        Pageable pageable,
-        String storageType,
-        String materialDescription
-    );
-    Page<InventoryCurrent> findByStorageTypeAndMaterialContainingIgnoreCaseAndMaterialDescriptionContainingIgnoreCase(
-        Pageable pageable,
-        String storageType,
-        String material,
-        String materialDescription
-    );
+
+    // Лёгкий снимок остатков склада (без сущностей в контексте) — для дельта-импорта
+    @Query(
+        "select ic.material as material, ic.materialDescription as materialDescription, ic.availableStock as availableStock " +
+        "from InventoryCurrent ic where ic.storageType = :storageType"
+    )
+    List<StockSnapshot> findSnapshotByStorageType(@Param("storageType") String storageType);
 
     @Query("select distinct ic.storageType from InventoryCurrent ic order by ic.storageType asc")
     List<String> findDistinctStorageTypes();
 
+    // Очистка склада перед полной перезагрузкой — одним DELETE, без загрузки сущностей
+    @Modifying
+    @Query("delete from InventoryCurrent ic where ic.storageType = :storageType")
+    int deleteAllByStorageTypeInBatch(@Param("storageType") String storageType);
+
     // Получить все записи по одному коду материала (по всем складам)
     List<InventoryCurrent> findByMaterial(String material);
 
     // Получить все записи по нескольким кодам (по всем складам)
     @Query("select ic from InventoryCurrent ic where ic.material in :materials")
     List<InventoryCurrent> findByMaterialIn(java.util.Collection<String> materials);
+
+    interface StockSnapshot {
+        String getMaterial();
+
+        String getMaterialDescription();
+
+        Integer getAvailableStock();
+    }
 }
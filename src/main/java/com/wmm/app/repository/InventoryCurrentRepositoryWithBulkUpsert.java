@@ -0,0 +1,21 @@
+package com.wmm.app.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Пакетная запись остатков одним набором SQL-выражений вместо find/save на каждый ключ.
+ */
+public interface InventoryCurrentRepositoryWithBulkUpsert {
+    /**
+     * Вставляет или обновляет остатки по уникальному индексу (storage_type, material).
+     * Строки с неизменившимися остатком и описанием не трогаются и в результат не попадают.
+     *
+     * @return ключи, которые были реально добавлены или обновлены
+     */
+    List<UpsertedKey> upsertAll(List<UpsertRow> rows, Instant updatedAt);
+
+    record UpsertRow(String storageType, String material, String materialDescription, int availableStock) {}
+
+    record UpsertedKey(String storageType, String material, boolean inserted) {}
+}
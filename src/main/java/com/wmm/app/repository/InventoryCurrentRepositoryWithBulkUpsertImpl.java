@@ -0,0 +1,98 @@
+package com.wmm.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import org.hibernate.Session;
+
+/**
+ * Upsert остатков через PostgreSQL {@code INSERT ... ON CONFLICT (storage_type, material) DO UPDATE}
+ * по индексу {@code ux_inventorycurrent_st_mat}. Строки передаются массивами через {@code unnest},
+ * поэтому на каждые {@link #BATCH_SIZE} ключей уходит ровно одно выражение.
+ */
+public class InventoryCurrentRepositoryWithBulkUpsertImpl implements InventoryCurrentRepositoryWithBulkUpsert {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // (xmax = 0) истинно только для только что вставленной строки — так отличаем added от updated
+    private static final String UPSERT_SQL =
+        """
+        insert into inventory_current (storage_type, material, material_description, available_stock, updated_at)
+        select t.storage_type, t.material, t.material_description, t.available_stock, ?
+        from unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::int[])
+            as t(storage_type, material, material_description, available_stock)
+        on conflict (storage_type, material) do update
+            set available_stock = excluded.available_stock,
+                material_description = excluded.material_description,
+                updated_at = excluded.updated_at
+            where (inventory_current.available_stock, inventory_current.material_description)
+                is distinct from (excluded.available_stock, excluded.material_description)
+        returning storage_type, material, (xmax = 0) as inserted
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UpsertedKey> upsertAll(List<UpsertRow> rows, Instant updatedAt) {
+        if (rows.isEmpty()) return List.of();
+
+        // native-запрос идёт мимо контекста персистентности — сначала сбрасываем отложенные изменения
+        entityManager.flush();
+
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(conn -> {
+                List<UpsertedKey> result = new ArrayList<>();
+                Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+                    for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                        List<UpsertRow> batch = rows.subList(from, Math.min(from + BATCH_SIZE, rows.size()));
+                        int n = batch.size();
+                        String[] storageTypes = new String[n];
+                        String[] materials = new String[n];
+                        String[] descriptions = new String[n];
+                        Integer[] stocks = new Integer[n];
+                        for (int i = 0; i < n; i++) {
+                            UpsertRow r = batch.get(i);
+                            storageTypes[i] = r.storageType();
+                            materials[i] = r.material();
+                            descriptions[i] = r.materialDescription();
+                            stocks[i] = r.availableStock();
+                        }
+
+                        Array st = conn.createArrayOf("varchar", storageTypes);
+                        Array mat = conn.createArrayOf("varchar", materials);
+                        Array desc = conn.createArrayOf("varchar", descriptions);
+                        Array qty = conn.createArrayOf("int4", stocks);
+                        try {
+                            ps.setTimestamp(1, Timestamp.from(updatedAt), utc);
+                            ps.setArray(2, st);
+                            ps.setArray(3, mat);
+                            ps.setArray(4, desc);
+                            ps.setArray(5, qty);
+                            try (ResultSet rs = ps.executeQuery()) {
+                                while (rs.next()) {
+                                    result.add(new UpsertedKey(rs.getString(1), rs.getString(2), rs.getBoolean(3)));
+                                }
+                            }
+                        } finally {
+                            st.free();
+                            mat.free();
+                            desc.free();
+                            qty.free();
+                        }
+                    }
+                }
+                return result;
+            });
+    }
+}
@@ -0,0 +1,23 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.InventoryCurrent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Поиск в таблице остатков: подстрокой по коду материала и по триграммам описания.
+ */
+public interface InventoryCurrentRepositoryWithSearch {
+    /**
+     * Остатки склада, у которых код содержит {@code material} (без учёта регистра), а описание содержит
+     * {@code description} или похоже на него. Пустой или {@code null} фильтр не применяется.
+     * <p>
+     * Сортировка — по {@code pageable}; без неё или с {@code sort=relevance} при фильтре по описанию — по похожести.
+     */
+    Page<InventoryCurrent> search(String storageType, String material, String description, Pageable pageable);
+
+    /**
+     * Имя свойства сортировки «по похожести».
+     */
+    String RELEVANCE = "relevance";
+}
@@ -0,0 +1,85 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.InventoryCurrent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Native-запрос с условиями {@link TrigramSearch}: код материала — только подстрокой без учёта регистра,
+ * описание — ещё и по похожим словам (фильтр по коду «100234» не должен находить соседние коды).
+ * Сортировка из {@code Pageable} переводится в колонки по белому списку, последним всегда идёт {@code id}.
+ */
+public class InventoryCurrentRepositoryWithSearchImpl implements InventoryCurrentRepositoryWithSearch {
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+        "id",
+        "ic.id",
+        "storageType",
+        "ic.storage_type",
+        "material",
+        "ic.material",
+        "materialDescription",
+        "ic.material_description",
+        "availableStock",
+        "ic.available_stock",
+        "updatedAt",
+        "ic.updated_at"
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<InventoryCurrent> search(String storageType, String material, String description, Pageable pageable) {
+        String m = material == null || material.isBlank() ? null : material.trim();
+        String d = description == null || description.isBlank() ? null : description.trim();
+
+        StringBuilder where = new StringBuilder(" from inventory_current ic where ic.storage_type = :storageType");
+        if (m != null) where.append(" and ").append(TrigramSearch.contains("ic.material", "material"));
+        if (d != null) where.append(" and ").append(TrigramSearch.matches("ic.material_description", "description"));
+
+        Query count = entityManager.createNativeQuery("select count(*)" + where);
+        bind(count, storageType, m, d);
+        long total = ((Number) count.getSingleResult()).longValue();
+        if (total == 0) return Page.empty(pageable);
+
+        String sql = "select ic.*" + where + " order by " + orderBy(pageable.getSort(), d);
+        Query query = entityManager.createNativeQuery(sql, InventoryCurrent.class);
+        bind(query, storageType, m, d);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<InventoryCurrent> content = query.getResultList();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private static String orderBy(Sort sort, String d) {
+        List<String> terms = new ArrayList<>();
+        if (d != null && (sort.isUnsorted() || sort.getOrderFor(RELEVANCE) != null)) {
+            terms.add(TrigramSearch.rank("description", "ic.material_description") + " desc");
+        }
+        for (Sort.Order o : sort) {
+            String column = SORT_COLUMNS.get(o.getProperty());
+            if (column != null) terms.add(column + (o.isAscending() ? " asc" : " desc"));
+        }
+        terms.add("ic.id");
+        return String.join(", ", terms);
+    }
+
+    private static void bind(Query query, String storageType, String m, String d) {
+        query.setParameter("storageType", storageType);
+        if (m != null) TrigramSearch.bindContains(query, "material", m);
+        if (d != null) TrigramSearch.bind(query, "description", d);
+    }
+}
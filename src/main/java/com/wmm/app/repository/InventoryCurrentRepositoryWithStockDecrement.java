@@ -0,0 +1,53 @@
+package com.wmm.app.repository;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Списание остатка одним условным {@code UPDATE} без чтения в Java и без пессимистичных блокировок:
+ * параллельные заявки на один материал не могут увести остаток в минус или потерять чужое списание.
+ */
+public interface InventoryCurrentRepositoryWithStockDecrement {
+    /**
+     * {@code UPDATE ... SET available_stock = available_stock - qty WHERE ... AND available_stock >= qty RETURNING available_stock}.
+     *
+     * @return остаток после списания; пусто, если строки нет или остатка не хватает
+     */
+    @Transactional
+    OptionalInt decrementStock(String storageType, String material, int qty);
+
+    /**
+     * Списание всех позиций заявки по принципу «всё или ничего». Материалы обрабатываются в порядке сортировки,
+     * чтобы встречные заявки брали блокировки строк в одном порядке и не ловили взаимную блокировку.
+     *
+     * @return остатки после списания по материалам
+     * @throws InsufficientStockException если хоть одну позицию списать нельзя; транзакция откатывается целиком
+     */
+    @Transactional
+    Map<String, Integer> decrementAll(String storageType, Map<String, Integer> qtyByMaterial);
+
+    /**
+     * Списание уже выданного без проверки остатка: остаток может уйти в минус — выгрузка SAP могла уменьшить его
+     * раньше, чем склад закрыл заявку. Материалы, которых нет в остатках склада, пропускаются. Порядок строк тот же,
+     * что у {@link #decrementAll}.
+     */
+    @Transactional
+    void subtractAll(String storageType, Map<String, Integer> qtyByMaterial);
+
+    class InsufficientStockException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String material;
+
+        public InsufficientStockException(String storageType, String material) {
+            super("Not enough stock of " + material + " in " + storageType);
+            this.material = material;
+        }
+
+        public String getMaterial() {
+            return material;
+        }
+    }
+}
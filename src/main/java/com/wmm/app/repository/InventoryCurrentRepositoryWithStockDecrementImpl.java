@@ -0,0 +1,91 @@
+package com.wmm.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import org.hibernate.Session;
+
+/**
+ * Условное списание по индексу {@code ux_inventorycurrent_st_mat}. Проверка и списание выполняются одним
+ * выражением: при гонке PostgreSQL перечитывает заблокированную строку и заново проверяет {@code available_stock >= qty}.
+ */
+public class InventoryCurrentRepositoryWithStockDecrementImpl implements InventoryCurrentRepositoryWithStockDecrement {
+
+    private static final String DECREMENT_SQL =
+        """
+        update inventory_current
+        set available_stock = available_stock - ?
+        where storage_type = ? and material = ? and available_stock >= ?
+        returning available_stock
+        """;
+
+    private static final String SUBTRACT_SQL =
+        "update inventory_current set available_stock = available_stock - ? where storage_type = ? and material = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public OptionalInt decrementStock(String storageType, String material, int qty) {
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(conn -> decrement(conn, storageType, material, qty));
+    }
+
+    @Override
+    public Map<String, Integer> decrementAll(String storageType, Map<String, Integer> qtyByMaterial) {
+        // native-запрос идёт мимо контекста персистентности — сначала сбрасываем отложенные изменения
+        entityManager.flush();
+
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(conn -> {
+                Map<String, Integer> remaining = new LinkedHashMap<>();
+                for (Map.Entry<String, Integer> e : new TreeMap<>(qtyByMaterial).entrySet()) {
+                    OptionalInt left = decrement(conn, storageType, e.getKey(), e.getValue());
+                    if (left.isEmpty()) throw new InsufficientStockException(storageType, e.getKey());
+                    remaining.put(e.getKey(), left.getAsInt());
+                }
+                return remaining;
+            });
+    }
+
+    @Override
+    public void subtractAll(String storageType, Map<String, Integer> qtyByMaterial) {
+        if (qtyByMaterial.isEmpty()) return;
+        entityManager.flush();
+
+        entityManager
+            .unwrap(Session.class)
+            .doWork(conn -> {
+                // одним пакетом; отсутствующая строка просто не обновляется
+                try (PreparedStatement ps = conn.prepareStatement(SUBTRACT_SQL)) {
+                    for (Map.Entry<String, Integer> e : new TreeMap<>(qtyByMaterial).entrySet()) {
+                        ps.setInt(1, e.getValue());
+                        ps.setString(2, storageType);
+                        ps.setString(3, e.getKey());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            });
+    }
+
+    private static OptionalInt decrement(Connection conn, String storageType, String material, int qty) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(DECREMENT_SQL)) {
+            ps.setInt(1, qty);
+            ps.setString(2, storageType);
+            ps.setString(3, material);
+            ps.setInt(4, qty);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? OptionalInt.of(rs.getInt(1)) : OptionalInt.empty();
+            }
+        }
+    }
+}
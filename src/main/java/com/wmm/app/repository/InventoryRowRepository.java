@@ -2,7 +2,15 @@ package com.wmm.app.repository;
 
 import com.wmm.app.domain.InventoryRow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface InventoryRowRepository extends JpaRepository<InventoryRow, Long> {}
+public interface InventoryRowRepository extends InventoryRowRepositoryWithCopy, JpaRepository<InventoryRow, Long> {
+    // История недочитанной загрузки — одним DELETE, без загрузки сущностей
+    @Modifying
+    @Query("delete from InventoryRow r where r.upload.id = :uploadId")
+    int deleteAllByUploadIdInBatch(@Param("uploadId") Long uploadId);
+}
@@ -0,0 +1,15 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.InventoryRow;
+
+/**
+ * Массовая загрузка истории строк импорта в обход Hibernate.
+ */
+public interface InventoryRowRepositoryWithCopy {
+    /**
+     * Потоково записывает строки в {@code inventory_row} через {@code COPY ... FROM STDIN}, привязывая их к загрузке.
+     *
+     * @return количество записанных строк
+     */
+    long copyAll(Long uploadId, Iterable<InventoryRow> rows);
+}
@@ -0,0 +1,85 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.InventoryRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.nio.charset.StandardCharsets;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Загрузка {@code inventory_row} через {@link org.postgresql.copy.CopyManager}. У сущности IDENTITY-ключи,
+ * поэтому JDBC-батчинг Hibernate для неё не работает и каждая строка была отдельным INSERT-ом;
+ * COPY передаёт все строки одним потоком в текстовом формате PostgreSQL.
+ */
+public class InventoryRowRepositoryWithCopyImpl implements InventoryRowRepositoryWithCopy {
+
+    private static final String COPY_SQL =
+        "COPY inventory_row (storage_type, material, material_description, available_stock, upload_id) FROM STDIN";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public long copyAll(Long uploadId, Iterable<InventoryRow> rows) {
+        // запись загрузки должна быть видна в той же транзакции до COPY (FK upload_id)
+        entityManager.flush();
+
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(conn -> {
+                CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+                try {
+                    String uploadRef = uploadId == null ? "\\N" : uploadId.toString();
+                    StringBuilder line = new StringBuilder(256);
+                    byte[] buf = new byte[BUFFER_SIZE];
+                    int pos = 0;
+                    for (InventoryRow r : rows) {
+                        line.setLength(0);
+                        appendField(line, r.getStorageType()).append('\t');
+                        appendField(line, r.getMaterial()).append('\t');
+                        appendField(line, r.getMaterialDescription()).append('\t');
+                        line.append(r.getAvailableStock() != null ? r.getAvailableStock() : 0).append('\t');
+                        line.append(uploadRef).append('\n');
+
+                        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                        if (pos + bytes.length > buf.length) {
+                            copy.writeToCopy(buf, 0, pos);
+                            pos = 0;
+                        }
+                        if (bytes.length > buf.length) {
+                            copy.writeToCopy(bytes, 0, bytes.length);
+                        } else {
+                            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+                            pos += bytes.length;
+                        }
+                    }
+                    if (pos > 0) copy.writeToCopy(buf, 0, pos);
+                    return copy.endCopy();
+                } finally {
+                    if (copy.isActive()) copy.cancelCopy();
+                }
+            });
+    }
+
+    /**
+     * Экранирование значения для текстового формата COPY: \N для NULL, обратный слэш перед спецсимволами.
+     */
+    private static StringBuilder appendField(StringBuilder sb, String value) {
+        if (value == null) return sb.append("\\N");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb;
+    }
+}
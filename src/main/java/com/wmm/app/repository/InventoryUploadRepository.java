@@ -1,8 +1,15 @@
 package com.wmm.app.repository;
 
 import com.wmm.app.domain.InventoryUpload;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface InventoryUploadRepository extends JpaRepository<InventoryUpload, Long> {}
+public interface InventoryUploadRepository extends JpaRepository<InventoryUpload, Long> {
+    Optional<InventoryUpload> findFirstByOrderByIdDesc();
+
+    // последние загрузки с отпечатками складов — для дельта-импорта
+    List<InventoryUpload> findTop50ByStorageTypeFingerprintsIsNotNullOrderByIdDesc();
+}
@@ -1,18 +1,34 @@
 package com.wmm.app.repository;
 
 import com.wmm.app.domain.InventoryVisiblePerStorage;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface InventoryVisiblePerStorageRepository extends JpaRepository<InventoryVisiblePerStorage, Long> {
+public interface InventoryVisiblePerStorageRepository
+    extends JpaRepository<InventoryVisiblePerStorage, Long>, InventoryVisiblePerStorageRepositoryWithBulkRebuild {
     Optional<InventoryVisiblePerStorage> findByStorageTypeAndMaterial(String storageType, String material);
 
+    // остатки всех плиток страницы витрины одним запросом
+    List<InventoryVisiblePerStorage> findByStorageTypeAndMaterialIn(String storageType, Collection<String> materials);
+
     List<InventoryVisiblePerStorage> findByMaterial(String material);
 
     List<InventoryVisiblePerStorage> findByStorageType(String storageType);
 
     void deleteByStorageTypeAndMaterial(String storageType, String material);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from InventoryVisiblePerStorage v where v.storageType = :storageType")
+    int deleteAllByStorageType(@Param("storageType") String storageType);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from InventoryVisiblePerStorage v where v.storageType = :storageType and v.material in :materials")
+    int deleteAllByStorageTypeAndMaterialIn(@Param("storageType") String storageType, @Param("materials") Collection<String> materials);
 }
@@ -0,0 +1,30 @@
+package com.wmm.app.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пересчёт видимых остатков одним SQL-выражением вместо чтения заявок и save на каждый материал.
+ */
+public interface InventoryVisiblePerStorageRepositoryWithBulkRebuild {
+    /**
+     * Пересчитывает видимые остатки всех материалов склада:
+     * {@code visible = max(0, available_stock - сумма qty в незавершённых заявках склада)}.
+     *
+     * @return количество записанных строк
+     */
+    int rebuildStorage(String storageType, Instant updatedAt);
+
+    /**
+     * То же для набора ключей (склад, материал), но резерв каждого ключа передаёт вызывающий (из журнала резервов),
+     * строки заявок не читаются. Ключи без строки в {@code inventory_current} пропускаются.
+     *
+     * @return записанные значения
+     */
+    List<Visible> rebuildKeys(Map<Key, Long> reservedByKey, Instant updatedAt);
+
+    record Key(String storageType, String material) {}
+
+    record Visible(String storageType, String material, int visibleStock) {}
+}
@@ -0,0 +1,127 @@
+package com.wmm.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import org.hibernate.Session;
+
+/**
+ * {@code INSERT ... SELECT} из {@code inventory_current}, соединённого с резервом,
+ * с {@code ON CONFLICT (storage_type, material) DO UPDATE} по индексу {@code ux_inventoryvisible_st_mat}.
+ * Для склада целиком резерв — агрегат незавершённых строк заявок; для набора ключей он приходит третьим
+ * массивом {@code unnest} из журнала резервов.
+ */
+public class InventoryVisiblePerStorageRepositoryWithBulkRebuildImpl implements InventoryVisiblePerStorageRepositoryWithBulkRebuild {
+
+    private static final String UPSERT =
+        """
+        insert into inventory_visible (storage_type, material, material_description, visible_stock, updated_at)
+        select c.storage_type, c.material, c.material_description, greatest(0, c.available_stock - coalesce(r.reserved, 0)), ?
+        """;
+
+    private static final String ON_CONFLICT =
+        """
+        on conflict (storage_type, material) do update
+            set material_description = excluded.material_description,
+                visible_stock = excluded.visible_stock,
+                updated_at = excluded.updated_at
+        """;
+
+    private static final String REBUILD_STORAGE_SQL =
+        UPSERT +
+        """
+        from inventory_current c
+        left join (
+            select l.material_code, sum(coalesce(l.qty, 0)) as reserved
+            from mechanic_order_line l
+            join mechanic_order o on o.id = l.order_id
+            where o.completed = false and o.storage_type = ?
+            group by l.material_code
+        ) r on r.material_code = c.material
+        where c.storage_type = ?
+        """ +
+        ON_CONFLICT;
+
+    private static final String REBUILD_KEYS_SQL =
+        """
+        with r as (select * from unnest(?::varchar[], ?::varchar[], ?::bigint[]) as r(storage_type, material, reserved))
+        """ +
+        UPSERT +
+        """
+        from r
+        join inventory_current c on c.storage_type = r.storage_type and c.material = r.material
+        """ +
+        ON_CONFLICT +
+        """
+        returning storage_type, material, visible_stock
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int rebuildStorage(String storageType, Instant updatedAt) {
+        // native-запрос идёт мимо контекста персистентности — сначала сбрасываем отложенные изменения
+        entityManager.flush();
+
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(REBUILD_STORAGE_SQL)) {
+                    ps.setTimestamp(1, Timestamp.from(updatedAt), Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+                    ps.setString(2, storageType);
+                    ps.setString(3, storageType);
+                    return ps.executeUpdate();
+                }
+            });
+    }
+
+    @Override
+    public List<Visible> rebuildKeys(Map<Key, Long> reservedByKey, Instant updatedAt) {
+        if (reservedByKey.isEmpty()) return List.of();
+
+        entityManager.flush();
+
+        String[] storageTypes = new String[reservedByKey.size()];
+        String[] materials = new String[reservedByKey.size()];
+        Long[] reserved = new Long[reservedByKey.size()];
+        int i = 0;
+        for (Map.Entry<Key, Long> e : reservedByKey.entrySet()) {
+            storageTypes[i] = e.getKey().storageType();
+            materials[i] = e.getKey().material();
+            reserved[i++] = e.getValue();
+        }
+
+        return entityManager
+            .unwrap(Session.class)
+            .doReturningWork(conn -> {
+                Array st = conn.createArrayOf("varchar", storageTypes);
+                Array mat = conn.createArrayOf("varchar", materials);
+                Array res = conn.createArrayOf("bigint", reserved);
+                try (PreparedStatement ps = conn.prepareStatement(REBUILD_KEYS_SQL)) {
+                    ps.setArray(1, st);
+                    ps.setArray(2, mat);
+                    ps.setArray(3, res);
+                    ps.setTimestamp(4, Timestamp.from(updatedAt), Calendar.getInstance(TimeZone.getTimeZone("UTC")));
+                    List<Visible> written = new ArrayList<>();
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) written.add(new Visible(rs.getString(1), rs.getString(2), rs.getInt(3)));
+                    }
+                    return written;
+                } finally {
+                    st.free();
+                    mat.free();
+                    res.free();
+                }
+            });
+    }
+}
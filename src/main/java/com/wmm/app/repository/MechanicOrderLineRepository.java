@@ -1,8 +1,38 @@
 package com.wmm.app.repository;
 
 import com.wmm.app.domain.MechanicOrderLine;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface MechanicOrderLineRepository extends JpaRepository<MechanicOrderLine, Long> {}
+public interface MechanicOrderLineRepository extends JpaRepository<MechanicOrderLine, Long> {
+    /**
+     * Сколько материала зарезервировано незавершёнными заявками склада.
+     * Опирается на индексы {@code mechanic_order_line(material_code)} и {@code mechanic_order(storage_type, completed)}.
+     */
+    @Query(
+        "select coalesce(sum(l.qty), 0) from MechanicOrderLine l " +
+        "where l.materialCode = :material and l.order.storageType = :storageType and l.order.completed = false"
+    )
+    long sumOpenQty(@Param("storageType") String storageType, @Param("material") String material);
+
+    /**
+     * Резерв незавершённых заявок по всем (склад, материал) — для заполнения и сверки журнала резервов.
+     */
+    @Query(
+        "select l.order.storageType as storageType, l.materialCode as material, coalesce(sum(l.qty), 0) as qty " +
+        "from MechanicOrderLine l where l.order.completed = false group by l.order.storageType, l.materialCode"
+    )
+    List<OpenQty> sumOpenQtyGrouped();
+
+    interface OpenQty {
+        String getStorageType();
+
+        String getMaterial();
+
+        Long getQty();
+    }
+}
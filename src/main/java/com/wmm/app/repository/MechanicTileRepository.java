@@ -31,19 +31,6 @@ public interface MechanicTileRepository extends MechanicTileRepositoryWithBagRel
         return this.fetchBagRelationships(this.findAll(pageable));
     }
 
-    // ИДшники активных плиток для склада + опциональный поиск по названию
-    @Query(
-        """
-        select distinct mt.id
-        from MechanicTile mt
-        join mt.warehouses w
-        where mt.active = true
-          and w.code = :storageType
-          and ( :q is null or :q = '' or lower(mt.title) like lower(concat('%', :q, '%')) )
-        """
-    )
-    List<Long> findActiveIdsByWarehouseAndQuery(@Param("storageType") String storageType, @Param("q") String q);
-
     // Жадная загрузка категорий и складов для набора id
     @EntityGraph(attributePaths = { "categories", "warehouses" })
     @Query("select distinct mt from MechanicTile mt where mt.id in :ids")
@@ -2,6 +2,7 @@ package com.wmm.app.repository;
 
 import com.wmm.app.domain.ReservedItem;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.*;
@@ -9,7 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ReservedItemRepository extends JpaRepository<ReservedItem, Long> {
+public interface ReservedItemRepository extends ReservedItemRepositoryWithWriteBehind, JpaRepository<ReservedItem, Long> {
     List<ReservedItem> findByReservedBy(String reservedBy);
 
     List<ReservedItem> findByReservedAtBefore(Instant threshold);
@@ -18,18 +19,69 @@ public interface ReservedItemRepository extends JpaRepository<ReservedItem, Long
 
     Optional<ReservedItem> findByMaterialCodeAndReservedBy(String materialCode, String reservedBy);
 
+    List<ReservedItem> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Удаляет резервы, истёкшие до {@code threshold}, одним выражением по индексу {@code expires_at}.
+     *
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query("delete from ReservedItem r where r.expiresAt < :threshold")
+    int deleteExpiredBefore(@Param("threshold") Instant threshold);
+
+    /**
+     * Продлевает неистёкшие резервы пользователя одним выражением.
+     *
+     * @return количество продлённых строк
+     */
+    @Modifying
+    @Query("update ReservedItem r set r.expiresAt = :newExpiry where r.reservedBy = :user and r.expiresAt > :now")
+    int extendActive(@Param("user") String user, @Param("newExpiry") Instant newExpiry, @Param("now") Instant now);
+
+    /**
+     * Активные резервы других пользователей по набору материалов одним запросом; материалы без резервов не возвращаются.
+     */
+    @Query(
+        """
+            select r.materialCode as materialCode, sum(r.qty) as qty
+            from ReservedItem r
+            where r.materialCode in :materials
+              and r.expiresAt > :now
+              and r.reservedBy <> :excludedUser
+            group by r.materialCode
+        """
+    )
+    List<MaterialQty> sumActiveByMaterialsExcludingUser(
+        @Param("materials") Collection<String> materials,
+        @Param("now") Instant now,
+        @Param("excludedUser") String excludedUser
+    );
+
+    /**
+     * То же в пределах склада.
+     */
     @Query(
         """
-            select coalesce(sum(r.qty), 0)
+            select r.materialCode as materialCode, sum(r.qty) as qty
             from ReservedItem r
-            where r.materialCode = :materialCode
+            where r.materialCode in :materials
+              and r.storageType = :storageType
               and r.expiresAt > :now
               and r.reservedBy <> :excludedUser
+            group by r.materialCode
         """
     )
-    int sumActiveByMaterialExcludingUser(
-        @Param("materialCode") String materialCode,
+    List<MaterialQty> sumActiveByMaterialsAndStorageTypeExcludingUser(
+        @Param("materials") Collection<String> materials,
+        @Param("storageType") String storageType,
         @Param("now") Instant now,
         @Param("excludedUser") String excludedUser
     );
+
+    interface MaterialQty {
+        String getMaterialCode();
+
+        long getQty();
+    }
 }
@@ -0,0 +1,19 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.ReservedItem;
+import java.util.Collection;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Отложенная запись резервов корзины пачками: upsert изменённых и удаление снятых одним выражением на каждое.
+ */
+public interface ReservedItemRepositoryWithWriteBehind {
+    /**
+     * Записывает резервы по ключу (пользователь, материал) и удаляет строки снятых резервов.
+     * Поле {@code id} у записываемых резервов не используется.
+     */
+    @Transactional
+    void writeBehind(Collection<ReservedItem> upserts, Collection<Key> deletes);
+
+    record Key(String reservedBy, String materialCode) {}
+}
@@ -0,0 +1,100 @@
+package com.wmm.app.repository;
+
+import com.wmm.app.domain.ReservedItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import org.hibernate.Session;
+
+/**
+ * {@code INSERT ... ON CONFLICT (reserved_by, material_code) DO UPDATE} по ограничению {@code uk_reserved_by_material}
+ * и {@code DELETE ... USING unnest(...)}. Время передаётся миллисекундами и переводится в UTC на стороне БД,
+ * как его пишет Hibernate.
+ */
+public class ReservedItemRepositoryWithWriteBehindImpl implements ReservedItemRepositoryWithWriteBehind {
+
+    private static final String UPSERT_SQL =
+        """
+        insert into reserved_item (id, material_code, qty, reserved_by, reserved_at, expires_at, storage_type)
+        select nextval('sequence_generator'), t.material_code, t.qty, t.reserved_by,
+            to_timestamp(t.reserved_at / 1000.0) at time zone 'UTC',
+            to_timestamp(t.expires_at / 1000.0) at time zone 'UTC',
+            t.storage_type
+        from unnest(?::varchar[], ?::varchar[], ?::int[], ?::varchar[], ?::bigint[], ?::bigint[])
+            as t(reserved_by, material_code, qty, storage_type, reserved_at, expires_at)
+        on conflict (reserved_by, material_code) do update
+            set qty = excluded.qty,
+                storage_type = excluded.storage_type,
+                reserved_at = excluded.reserved_at,
+                expires_at = excluded.expires_at
+        """;
+
+    private static final String DELETE_SQL =
+        """
+        delete from reserved_item r
+        using unnest(?::varchar[], ?::varchar[]) as d(reserved_by, material_code)
+        where r.reserved_by = d.reserved_by and r.material_code = d.material_code
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void writeBehind(Collection<ReservedItem> upserts, Collection<Key> deletes) {
+        if (upserts.isEmpty() && deletes.isEmpty()) return;
+
+        entityManager
+            .unwrap(Session.class)
+            .doWork(conn -> {
+                if (!upserts.isEmpty()) {
+                    int n = upserts.size();
+                    String[] users = new String[n];
+                    String[] materials = new String[n];
+                    Integer[] qtys = new Integer[n];
+                    String[] storageTypes = new String[n];
+                    Long[] reservedAt = new Long[n];
+                    Long[] expiresAt = new Long[n];
+                    int i = 0;
+                    for (ReservedItem r : upserts) {
+                        users[i] = r.getReservedBy();
+                        materials[i] = r.getMaterialCode();
+                        qtys[i] = r.getQty();
+                        storageTypes[i] = r.getStorageType();
+                        reservedAt[i] = r.getReservedAt().toEpochMilli();
+                        expiresAt[i++] = r.getExpiresAt().toEpochMilli();
+                    }
+                    Array[] arrays = {
+                        conn.createArrayOf("varchar", users),
+                        conn.createArrayOf("varchar", materials),
+                        conn.createArrayOf("int4", qtys),
+                        conn.createArrayOf("varchar", storageTypes),
+                        conn.createArrayOf("int8", reservedAt),
+                        conn.createArrayOf("int8", expiresAt),
+                    };
+                    try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+                        for (int p = 0; p < arrays.length; p++) ps.setArray(p + 1, arrays[p]);
+                        ps.executeUpdate();
+                    } finally {
+                        for (Array a : arrays) a.free();
+                    }
+                }
+
+                if (!deletes.isEmpty()) {
+                    String[] users = deletes.stream().map(Key::reservedBy).toArray(String[]::new);
+                    String[] materials = deletes.stream().map(Key::materialCode).toArray(String[]::new);
+                    Array u = conn.createArrayOf("varchar", users);
+                    Array m = conn.createArrayOf("varchar", materials);
+                    try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
+                        ps.setArray(1, u);
+                        ps.setArray(2, m);
+                        ps.executeUpdate();
+                    } finally {
+                        u.free();
+                        m.free();
+                    }
+                }
+            });
+    }
+}
@@ -0,0 +1,63 @@
+package com.wmm.app.repository;
+
+import jakarta.persistence.Query;
+
+/**
+ * Общие куски native-запросов для поиска через {@code pg_trgm}.
+ * <p>
+ * Совпадением считается подстрока без учёта регистра ({@code ilike}) или похожее слово
+ * ({@code :term <% column}, порог {@code pg_trgm.word_similarity_threshold}) — так находится и «болт» в
+ * «Болт М8», и «болд» с опечаткой. Оба оператора обслуживаются GIN-индексами {@code gin_trgm_ops}
+ * (changelog 20251108). Ранг — {@code word_similarity}: насколько термин похож на лучшее слово колонки.
+ */
+final class TrigramSearch {
+
+    private TrigramSearch() {}
+
+    /**
+     * Условие совпадения колонки с термином из параметра {@code param}.
+     */
+    static String matches(String column, String param) {
+        return "(" + column + " ilike :" + param + "Like or :" + param + " <% " + column + ")";
+    }
+
+    /**
+     * Только подстрока без учёта регистра — для кодов материалов, где «похожий» код означает другой материал.
+     * Обслуживается тем же GIN-индексом {@code gin_trgm_ops}.
+     */
+    static String contains(String column, String param) {
+        return column + " ilike :" + param + "Like";
+    }
+
+    /**
+     * Ранг строки: лучшая похожесть термина на одну из колонок.
+     */
+    static String rank(String param, String... columns) {
+        StringBuilder sb = new StringBuilder("greatest(");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("word_similarity(:").append(param).append(", ").append(columns[i]).append(')');
+        }
+        return sb.append(')').toString();
+    }
+
+    static void bind(Query query, String param, String term) {
+        query.setParameter(param, term);
+        bindContains(query, param, term);
+    }
+
+    static void bindContains(Query query, String param, String term) {
+        query.setParameter(param + "Like", "%" + escapeLike(term) + "%");
+    }
+
+    // % и _ из ввода пользователя ищутся буквально
+    static String escapeLike(String term) {
+        StringBuilder sb = new StringBuilder(term.length() + 4);
+        for (int i = 0; i < term.length(); i++) {
+            char ch = term.charAt(i);
+            if (ch == '\\' || ch == '%' || ch == '_') sb.append('\\');
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+}
@@ -2,12 +2,16 @@ package com.wmm.app.repository;
 
 import com.wmm.app.domain.User;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -33,4 +37,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
     Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    /**
+     * Логины из {@code logins}, у активных владельцев которых есть хотя бы одна из {@code authorities}.
+     */
+    @Query(
+        """
+            select distinct u.login
+            from User u join u.authorities a
+            where u.activated = true
+              and u.login in :logins
+              and a.name in :authorities
+        """
+    )
+    Set<String> findActivatedLoginsWithAnyAuthority(
+        @Param("logins") Collection<String> logins,
+        @Param("authorities") Collection<String> authorities
+    );
 }
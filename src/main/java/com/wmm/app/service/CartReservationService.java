@@ -1,86 +1,81 @@
 package com.wmm.app.service;
 
 import com.wmm.app.domain.ReservedItem;
-import com.wmm.app.repository.ReservedItemRepository;
-import jakarta.transaction.Transactional;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import com.wmm.app.repository.UserRepository;
+import com.wmm.app.security.AuthoritiesConstants;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.stereotype.Service;
 
+/**
+ * Резервы корзины. Все операции выполняются в памяти {@link CartReservationStore}, в БД они попадают отложенной записью.
+ */
 @Service
-@Transactional
 public class CartReservationService {
 
-    private final ReservedItemRepository reservedItemRepository;
+    // корзина есть только у механиков — только их резервы можно продлевать чужим heartbeat
+    private static final Set<String> CART_OWNER_ROLES = Set.of(AuthoritiesConstants.MECHANIC, AuthoritiesConstants.SENIOR_MECHANIC);
 
-    public CartReservationService(ReservedItemRepository reservedItemRepository) {
-        this.reservedItemRepository = reservedItemRepository;
+    private final CartReservationStore reservationStore;
+    private final UserRepository userRepository;
+
+    public CartReservationService(CartReservationStore reservationStore, UserRepository userRepository) {
+        this.reservationStore = reservationStore;
+        this.userRepository = userRepository;
     }
 
     /**
      * Резервирует материал для пользователя.
      */
     public ReservedItem reserveItem(String materialCode, int qty, String reservedBy, String storageType) {
-        Instant now = Instant.now();
-        Instant expiresAt = now.plus(1, ChronoUnit.MINUTES); // 🕒 тестовая минута
-
-        ReservedItem item = reservedItemRepository.findByMaterialCodeAndReservedBy(materialCode, reservedBy).orElseGet(ReservedItem::new);
-
-        item.setMaterialCode(materialCode);
-        item.setQty(qty);
-        item.setReservedBy(reservedBy);
-        item.setReservedAt(now);
-        item.setExpiresAt(expiresAt);
-        item.setStorageType(storageType);
-
-        return reservedItemRepository.save(item);
+        return reservationStore.reserve(reservedBy, materialCode, qty, storageType);
     }
 
     /**
      * Удаляет резерв конкретного материала.
      */
     public void releaseItem(String materialCode, String user) {
-        reservedItemRepository.findByMaterialCodeAndReservedBy(materialCode, user).ifPresent(reservedItemRepository::delete);
+        reservationStore.release(user, materialCode);
     }
 
     /**
      * Очищает все резервы пользователя.
      */
     public void releaseAll(String user) {
-        reservedItemRepository.findByReservedBy(user).forEach(reservedItemRepository::delete);
+        reservationStore.releaseAll(user);
     }
 
     /**
      * Продлевает жизнь всех резервов пользователя.
      */
     public void extendReservations(String user) {
-        Instant now = Instant.now();
-        Instant newExpiry = now.plus(1, ChronoUnit.MINUTES); // 🕒 тестовая минута
+        reservationStore.extend(user);
+    }
 
-        reservedItemRepository
-            .findByReservedBy(user)
-            .forEach(r -> {
-                if (r.getExpiresAt() != null && r.getExpiresAt().isAfter(now)) {
-                    r.setExpiresAt(newExpiry);
-                    reservedItemRepository.save(r);
-                }
-            });
+    /**
+     * Продлевает резервы нескольких пользователей одним вызовом. Логины, не принадлежащие активным механикам,
+     * пропускаются.
+     *
+     * @return сколько резервов продлено у каждого механика из списка
+     */
+    public Map<String, Integer> extendReservations(Collection<String> users) {
+        Set<String> mechanics = userRepository.findActivatedLoginsWithAnyAuthority(users, CART_OWNER_ROLES);
+        return reservationStore.extend(users.stream().filter(mechanics::contains).toList());
     }
 
     /**
-     * Возвращает активные резервы пользователя (и очищает старые).
+     * Возвращает активные резервы пользователя. Истёкшие удаляет {@link ReservedItemSweeper}.
      */
     public List<ReservedItem> getActiveReservations(String user) {
-        Instant now = Instant.now();
-
-        // очистка протухших резервов
-        reservedItemRepository.findByReservedAtBefore(now.minus(1, ChronoUnit.HOURS)).forEach(reservedItemRepository::delete);
+        return reservationStore.active(user);
+    }
 
-        return reservedItemRepository
-            .findByReservedBy(user)
-            .stream()
-            .filter(r -> r.getExpiresAt() != null && r.getExpiresAt().isAfter(now))
-            .toList();
+    /**
+     * Суммы резервов других пользователей по материалам; без {@code storageType} — по всем складам.
+     */
+    public Map<String, Integer> getReservedCounts(Collection<String> materials, String storageType, String excludedUser) {
+        return reservationStore.reservedByOthers(materials, storageType, excludedUser);
     }
 }
@@ -0,0 +1,394 @@
+package com.wmm.app.service;
+
+import com.wmm.app.config.ApplicationProperties;
+import com.wmm.app.domain.ReservedItem;
+import com.wmm.app.repository.ReservedItemRepository;
+import com.wmm.app.repository.ReservedItemRepositoryWithWriteBehind.Key;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Резервы корзины в памяти. Резерв, снятие и heartbeat не ходят в БД: меняется состояние в памяти,
+ * а изменённые ключи (пользователь, материал) раз в {@value #FLUSH_MS} мс пачкой пишутся в {@code reserved_item}
+ * одной транзакцией. Heartbeat записывается не по строкам, а одним {@code UPDATE} на пользователя; если он задел
+ * меньше строк, чем у пользователя резервов в памяти, резервы пользователя переписываются следующей записью.
+ * Таблица нужна только чтобы пережить перезапуск — при первом обращении из неё читаются неистёкшие резервы.
+ * <p>
+ * Истечение — хешированное колесо таймеров: слот на секунду, резерв лежит в слоте своего срока.
+ * Продление только меняет срок; когда старый слот срабатывает, резерв переезжает в новый. Истёкшие резервы
+ * из таблицы не удаляются по одному — их убирает {@link ReservedItemSweeper}.
+ * <p>
+ * Суммы резервов по материалу и складу поддерживаются при каждом изменении, поэтому
+ * {@link #reservedByOthers} не перебирает резервы. Пока резервы не загружены (после перезапуска никто ещё
+ * не резервировал и не продлевал), суммы считает сгруппированный запрос по индексу {@code ix_reserveditem_mat_st_exp} —
+ * страницы каталога не ждут загрузки всей таблицы.
+ * <p>
+ * Состояние живёт в одном экземпляре приложения; при нескольких экземплярах резервы нужно вынести в общее хранилище.
+ */
+@Service
+public class CartReservationStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CartReservationStore.class);
+
+    private static final long TICK_MS = 1000;
+    // степень двойки; резервы со сроком дальше оборота колеса проходят лишний круг
+    private static final int WHEEL_SIZE = 128;
+    private static final long FLUSH_MS = 5000;
+
+    private final ReservedItemRepository reservedItemRepository;
+    private final TransactionOperations transaction;
+    private final TaskScheduler scheduler;
+    private final Duration ttl;
+    private final Clock clock;
+
+    // всё ниже — под монитором хранилища
+    private final Map<String, Map<String, Hold>> byUser = new HashMap<>();
+    // материал -> склад -> сумма
+    private final Map<String, Map<String, Integer>> totals = new HashMap<>();
+    private final List<List<Hold>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long currentTick;
+    private final Set<Key> dirty = new LinkedHashSet<>();
+    // пользователь -> новый срок после heartbeat
+    private final Map<String, Instant> extended = new LinkedHashMap<>();
+    private boolean loaded;
+
+    private final Object flushLock = new Object();
+    private ScheduledFuture<?> ticker;
+    private ScheduledFuture<?> flusher;
+
+    @Autowired
+    public CartReservationStore(
+        ReservedItemRepository reservedItemRepository,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        @Qualifier("cartReservationScheduler") TaskScheduler scheduler
+    ) {
+        this(
+            reservedItemRepository,
+            new TransactionTemplate(transactionManager),
+            scheduler,
+            applicationProperties.getCart().getReservationTtl(),
+            Clock.systemUTC()
+        );
+    }
+
+    CartReservationStore(
+        ReservedItemRepository reservedItemRepository,
+        TransactionOperations transaction,
+        TaskScheduler scheduler,
+        Duration ttl,
+        Clock clock
+    ) {
+        this.reservedItemRepository = reservedItemRepository;
+        this.transaction = transaction;
+        this.scheduler = scheduler;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.currentTick = clock.millis() / TICK_MS;
+        for (int i = 0; i < WHEEL_SIZE; i++) wheel.add(new ArrayList<>());
+    }
+
+    /**
+     * Запуск колеса и записи в таблицу. Не из конструктора: тесты двигают время и сбрасывают изменения сами.
+     */
+    @PostConstruct
+    public void start() {
+        Instant now = clock.instant();
+        ticker = scheduler.scheduleAtFixedRate(() -> advance(clock.instant()), now.plusMillis(TICK_MS), Duration.ofMillis(TICK_MS));
+        flusher = scheduler.scheduleWithFixedDelay(this::flush, now.plusMillis(FLUSH_MS), Duration.ofMillis(FLUSH_MS));
+    }
+
+    /**
+     * Резервирует материал; повторный резерв того же материала заменяет количество и продлевает срок.
+     */
+    public synchronized ReservedItem reserve(String user, String material, int qty, String storageType) {
+        ensureLoaded();
+        Instant now = clock.instant();
+        Hold hold = byUser.computeIfAbsent(user, k -> new HashMap<>()).get(material);
+        if (hold == null) {
+            hold = new Hold(user, material);
+            byUser.get(user).put(material, hold);
+        } else {
+            addTotal(hold, -hold.qty);
+        }
+        hold.qty = qty;
+        hold.storageType = storageType;
+        hold.reservedAt = now;
+        hold.expiresAt = now.plus(ttl);
+        addTotal(hold, qty);
+        if (!hold.scheduled) schedule(hold);
+        dirty.add(hold.key());
+        return hold.toEntity();
+    }
+
+    public synchronized void release(String user, String material) {
+        ensureLoaded();
+        Map<String, Hold> holds = byUser.get(user);
+        Hold hold = holds == null ? null : holds.get(material);
+        if (hold != null) {
+            remove(hold);
+            dirty.add(hold.key());
+        }
+    }
+
+    public synchronized void releaseAll(String user) {
+        ensureLoaded();
+        Map<String, Hold> holds = byUser.get(user);
+        if (holds == null) return;
+        for (Hold hold : new ArrayList<>(holds.values())) {
+            remove(hold);
+            dirty.add(hold.key());
+        }
+    }
+
+    /**
+     * Продлевает неистёкшие резервы пользователя на срок резерва.
+     *
+     * @return сколько резервов продлено
+     */
+    public synchronized int extend(String user) {
+        ensureLoaded();
+        Instant now = clock.instant();
+        advance(now);
+        return extendLoaded(user, now.plus(ttl));
+    }
+
+    /**
+     * Heartbeat сразу нескольких пользователей, например всех сессий общего киоска.
+     *
+     * @return сколько резервов продлено у каждого пользователя
+     */
+    public synchronized Map<String, Integer> extend(Collection<String> users) {
+        ensureLoaded();
+        Instant now = clock.instant();
+        advance(now);
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String user : users) result.put(user, extendLoaded(user, now.plus(ttl)));
+        return result;
+    }
+
+    public synchronized List<ReservedItem> active(String user) {
+        ensureLoaded();
+        advance(clock.instant());
+        Map<String, Hold> holds = byUser.get(user);
+        return holds == null ? List.of() : holds.values().stream().map(Hold::toEntity).toList();
+    }
+
+    /**
+     * Сколько материалов зарезервировано другими пользователями; без {@code storageType} — по всем складам.
+     */
+    public synchronized Map<String, Integer> reservedByOthers(Collection<String> materials, String storageType, String excludedUser) {
+        if (!loaded) return reservedByOthersInTable(materials, storageType, excludedUser);
+        advance(clock.instant());
+        Map<String, Hold> own = byUser.getOrDefault(excludedUser, Map.of());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String material : materials) {
+            Map<String, Integer> perStorage = totals.getOrDefault(material, Map.of());
+            int sum = storageType == null
+                ? perStorage.values().stream().mapToInt(Integer::intValue).sum()
+                : perStorage.getOrDefault(storageType, 0);
+            Hold mine = own.get(material);
+            if (mine != null && (storageType == null || storageType.equals(mine.storageType))) sum -= mine.qty;
+            result.put(material, sum);
+        }
+        return result;
+    }
+
+    /**
+     * Проворачивает колесо до {@code now}: истёкшие резервы снимаются, продлённые переезжают в слот нового срока.
+     */
+    synchronized void advance(Instant now) {
+        long nowTick = now.toEpochMilli() / TICK_MS;
+        // после долгой паузы достаточно обойти каждый слот один раз
+        long from = Math.max(currentTick + 1, nowTick - WHEEL_SIZE + 1);
+        for (long tick = from; tick <= nowTick; tick++) {
+            currentTick = tick;
+            int slot = (int) (tick & (WHEEL_SIZE - 1));
+            List<Hold> bucket = wheel.get(slot);
+            if (bucket.isEmpty()) continue;
+            wheel.set(slot, new ArrayList<>());
+            for (Hold hold : bucket) {
+                hold.scheduled = false;
+                if (hold.removed) continue;
+                if (!hold.expiresAt.isAfter(now)) remove(hold);
+                else schedule(hold);
+            }
+        }
+    }
+
+    /**
+     * Записать изменённые резервы в БД. Ключи, которые не удалось записать, останутся до следующего раза.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Key> batch;
+            Map<String, Instant> heartbeats;
+            List<ReservedItem> upserts = new ArrayList<>();
+            List<Key> deletes = new ArrayList<>();
+            synchronized (this) {
+                if (dirty.isEmpty() && extended.isEmpty()) return;
+                batch = new ArrayList<>(dirty);
+                heartbeats = new LinkedHashMap<>(extended);
+                dirty.clear();
+                extended.clear();
+                for (Key key : batch) {
+                    Hold hold = byUser.getOrDefault(key.reservedBy(), Map.of()).get(key.materialCode());
+                    if (hold == null) deletes.add(key);
+                    else upserts.add(hold.toEntity());
+                }
+            }
+            Instant now = clock.instant();
+            Map<String, Integer> extendedRows = new HashMap<>();
+            try {
+                transaction.executeWithoutResult(status -> {
+                    if (!upserts.isEmpty() || !deletes.isEmpty()) reservedItemRepository.writeBehind(upserts, deletes);
+                    heartbeats.forEach((user, newExpiry) ->
+                        extendedRows.put(user, reservedItemRepository.extendActive(user, newExpiry, now))
+                    );
+                });
+            } catch (RuntimeException e) {
+                LOG.error(
+                    "Cart reservation write-behind failed for {} keys and {} heartbeats, will retry",
+                    batch.size(),
+                    heartbeats.size(),
+                    e
+                );
+                synchronized (this) {
+                    dirty.addAll(batch);
+                    heartbeats.forEach((user, newExpiry) -> extended.merge(user, newExpiry, (a, b) -> a.isAfter(b) ? a : b));
+                }
+                return;
+            }
+            synchronized (this) {
+                // UPDATE не нашёл часть резервов (в таблице они уже истекли или не записаны) — записываем их целиком
+                extendedRows.forEach((user, rows) -> {
+                    Map<String, Hold> holds = byUser.get(user);
+                    if (holds != null && rows < holds.size()) holds.values().forEach(hold -> dirty.add(hold.key()));
+                });
+            }
+        }
+    }
+
+    /**
+     * Последняя запись при остановке; планировщик останавливает Spring уже после этого бина.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) ticker.cancel(false);
+        if (flusher != null) flusher.cancel(false);
+        flush();
+    }
+
+    private int extendLoaded(String user, Instant newExpiry) {
+        Map<String, Hold> holds = byUser.get(user);
+        if (holds == null) return 0;
+        for (Hold hold : holds.values()) hold.expiresAt = newExpiry;
+        extended.put(user, newExpiry);
+        return holds.size();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        for (ReservedItem r : reservedItemRepository.findByExpiresAtAfter(clock.instant())) {
+            Hold hold = new Hold(r.getReservedBy(), r.getMaterialCode());
+            hold.qty = r.getQty();
+            hold.storageType = r.getStorageType();
+            hold.reservedAt = r.getReservedAt();
+            hold.expiresAt = r.getExpiresAt();
+            byUser.computeIfAbsent(hold.user, k -> new HashMap<>()).put(hold.material, hold);
+            addTotal(hold, hold.qty);
+            schedule(hold);
+        }
+        loaded = true;
+    }
+
+    // до загрузки в памяти нет изменений, таблица актуальна
+    private Map<String, Integer> reservedByOthersInTable(Collection<String> materials, String storageType, String excludedUser) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String material : materials) result.put(material, 0);
+        if (result.isEmpty()) return result;
+        Instant now = clock.instant();
+        List<ReservedItemRepository.MaterialQty> sums = storageType == null
+            ? reservedItemRepository.sumActiveByMaterialsExcludingUser(result.keySet(), now, excludedUser)
+            : reservedItemRepository.sumActiveByMaterialsAndStorageTypeExcludingUser(result.keySet(), storageType, now, excludedUser);
+        sums.forEach(s -> result.put(s.getMaterialCode(), (int) s.getQty()));
+        return result;
+    }
+
+    private void schedule(Hold hold) {
+        long tick = Math.max(currentTick + 1, (hold.expiresAt.toEpochMilli() + TICK_MS - 1) / TICK_MS);
+        wheel.get((int) (tick & (WHEEL_SIZE - 1))).add(hold);
+        hold.scheduled = true;
+    }
+
+    private void remove(Hold hold) {
+        Map<String, Hold> holds = byUser.get(hold.user);
+        if (holds == null || holds.get(hold.material) != hold) return;
+        holds.remove(hold.material);
+        if (holds.isEmpty()) byUser.remove(hold.user);
+        addTotal(hold, -hold.qty);
+        // из слота колеса уберётся, когда слот сработает
+        hold.removed = true;
+    }
+
+    private void addTotal(Hold hold, int delta) {
+        Map<String, Integer> perStorage = totals.computeIfAbsent(hold.material, k -> new HashMap<>());
+        int sum = perStorage.getOrDefault(hold.storageType, 0) + delta;
+        if (sum == 0) perStorage.remove(hold.storageType);
+        else perStorage.put(hold.storageType, sum);
+        if (perStorage.isEmpty()) totals.remove(hold.material);
+    }
+
+    private static final class Hold {
+
+        private final String user;
+        private final String material;
+        private int qty;
+        private String storageType;
+        private Instant reservedAt;
+        private Instant expiresAt;
+        private boolean scheduled;
+        private boolean removed;
+
+        Hold(String user, String material) {
+            this.user = user;
+            this.material = material;
+        }
+
+        Key key() {
+            return new Key(user, material);
+        }
+
+        ReservedItem toEntity() {
+            ReservedItem item = new ReservedItem();
+            item.setReservedBy(user);
+            item.setMaterialCode(material);
+            item.setQty(qty);
+            item.setStorageType(storageType);
+            item.setReservedAt(reservedAt);
+            item.setExpiresAt(expiresAt);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.wmm.app.service;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Service;
+
+/**
+ * Версии данных витрины для условных GET. ETag собирается из счётчиков в памяти, поэтому ответ 304 не трогает БД.
+ * <p>
+ * Общий счётчик растёт при изменении плиток, категорий и складов и после импорта остатков. Счётчик склада растёт
+ * при каждом пересчёте его видимых остатков: заявки, выдача, импорт. Внутри транзакции счётчик увеличивается
+ * только после коммита — клиент не получит новый ETag раньше, чем данные станут видны.
+ * Эпоха (время старта) входит в ETag, чтобы после перезапуска счётчики с нуля не совпали со старыми.
+ */
+@Service
+public class CatalogVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong global = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> byStorage = new ConcurrentHashMap<>();
+
+    /**
+     * Изменилось то, что видно на всех складах: плитки, категории, склады, список складов.
+     */
+    public void bumpAll() {
+        AfterCommit.run(this::incrementAll);
+    }
+
+    /**
+     * Изменились остатки склада.
+     */
+    public void bump(String storageType) {
+        if (storageType != null) AfterCommit.run(() -> increment(storageType));
+    }
+
+    public void bump(Collection<String> storageTypes) {
+        if (storageTypes.isEmpty()) return;
+        AfterCommit.run(() -> storageTypes.forEach(this::increment));
+    }
+
+    /**
+     * ETag плиток склада: общий счётчик и счётчик остатков склада.
+     */
+    public String catalogTag(String storageType) {
+        AtomicLong stock = byStorage.get(storageType);
+        return "\"" + epoch + "-" + global.get() + "-" + (stock == null ? 0 : stock.get()) + "\"";
+    }
+
+    /**
+     * ETag данных, не зависящих от остатков: категории, список складов.
+     */
+    public String globalTag() {
+        return "\"" + epoch + "-" + global.get() + "\"";
+    }
+
+    /**
+     * Без ожидания коммита — для вызова из уже сработавшего afterCommit, где новые синхронизации не выполняются.
+     */
+    void incrementAll() {
+        global.incrementAndGet();
+    }
+
+    private void increment(String storageType) {
+        byStorage.computeIfAbsent(storageType, k -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,156 @@
+package com.wmm.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wmm.app.domain.CheckoutIdempotency;
+import com.wmm.app.repository.CheckoutIdempotencyRepository;
+import com.wmm.app.web.rest.errors.BadRequestAlertException;
+import jakarta.transaction.Transactional;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Идемпотентное оформление заявки по заголовку {@value #HEADER}.
+ * <p>
+ * Первый запрос занимает ключ строкой в {@code checkout_idempotency}, выполняется и сохраняет JSON ответа —
+ * всё одной транзакцией: при ошибке или падении откатываются и заявка, и занятие ключа.
+ * Повтор с тем же ключом получает сохранённый ответ: из кэша {@value #RESPONSES_CACHE} (ограничен по размеру
+ * и сроку, см. {@code CacheConfiguration}) или из таблицы — без проверки остатков и новой заявки.
+ * Повтор, пришедший пока первый запрос ещё выполняется, ждёт его завершения на уникальном индексе;
+ * ключ с другим телом запроса — 400. Ключи действуют в пределах пользователя и хранятся {@link #RETENTION}.
+ */
+@Service
+@Transactional
+public class CheckoutIdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String RESPONSES_CACHE = "checkoutIdempotencyResponses";
+
+    static final Duration RETENTION = Duration.ofHours(24);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckoutIdempotencyService.class);
+
+    private final CheckoutIdempotencyRepository repository;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+
+    public CheckoutIdempotencyService(CheckoutIdempotencyRepository repository, CacheManager cacheManager, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Выполнить запрос с ключом: занять ключ, выполнить {@code action} и сохранить его ответ.
+     *
+     * @return ответ {@code action} или сохранённый ответ, если запрос с этим ключом уже выполнен
+     */
+    public <T> T execute(String login, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        Optional<T> replay = begin(login, key, request, responseType);
+        if (replay.isPresent()) return replay.get();
+        T response = action.get();
+        complete(login, key, request, response);
+        return response;
+    }
+
+    /**
+     * Начать запрос с ключом.
+     *
+     * @return сохранённый ответ, если запрос с этим ключом уже выполнен; пусто — ключ занят этой транзакцией
+     */
+    <T> Optional<T> begin(String login, String key, Object request, Class<T> responseType) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestAlertException("Idempotency-Key is too long", "mechanicOrder", "idempotencykeytoolong");
+        }
+        String requestHash = hash(request);
+
+        Stored stored = cache().get(cacheKey(login, key), Stored.class);
+        if (stored == null) {
+            if (repository.claim(login, key, requestHash, Instant.now()) == 1) return Optional.empty();
+
+            CheckoutIdempotency row = repository
+                .findByLoginAndIdempotencyKey(login, key)
+                .orElseThrow(() -> new ConcurrencyFailureException("Idempotency-Key " + key + " was released concurrently"));
+            if (row.getResponse() == null) {
+                if (!row.getRequestHash().equals(requestHash)) throw mismatch();
+                throw new ConcurrencyFailureException("Checkout with Idempotency-Key " + key + " is still in progress");
+            }
+            stored = new Stored(row.getRequestHash(), row.getResponse());
+            cache().put(cacheKey(login, key), stored);
+        }
+
+        if (!stored.requestHash().equals(requestHash)) throw mismatch();
+        return Optional.of(read(stored.response(), responseType));
+    }
+
+    /**
+     * Сохранить ответ выполненного запроса; в кэш он попадает только после коммита.
+     */
+    void complete(String login, String key, Object request, Object response) {
+        String json = write(response);
+        repository.complete(login, key, json);
+        Stored stored = new Stored(hash(request), json);
+        AfterCommit.run(() -> cache().put(cacheKey(login, key), stored));
+    }
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeExpired() {
+        int deleted = repository.deleteCreatedBefore(Instant.now().minus(RETENTION));
+        if (deleted > 0) LOG.debug("Purged {} checkout idempotency keys", deleted);
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(RESPONSES_CACHE);
+    }
+
+    private static String cacheKey(String login, String key) {
+        return login + '\n' + key;
+    }
+
+    private static BadRequestAlertException mismatch() {
+        return new BadRequestAlertException("Idempotency-Key was used with a different request", "mechanicOrder", "idempotencymismatch");
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(write(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored " + type.getSimpleName(), e);
+        }
+    }
+
+    record Stored(String requestHash, String response) implements Serializable {}
+}
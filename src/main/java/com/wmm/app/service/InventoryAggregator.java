@@ -0,0 +1,87 @@
+package com.wmm.app.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Однопроходная агрегация строк импорта по ключу (storageType, material).
+ * За один проход накапливает сумму остатка, первое описание материала и количество исходных строк,
+ * поэтому не зависит от формата файла и не требует повторных проходов по распарсенным строкам.
+ */
+public final class InventoryAggregator {
+
+    private final Map<Key, Totals> totals = new LinkedHashMap<>();
+
+    public void add(String storageType, String material, String materialDescription, int availableStock) {
+        Totals t = totals.computeIfAbsent(new Key(storageType, material), k -> new Totals());
+        t.availableStock += availableStock;
+        t.rowCount++;
+        if (t.materialDescription == null) t.materialDescription = materialDescription;
+    }
+
+    /**
+     * Итоги в порядке первого появления ключа в файле.
+     */
+    public Map<Key, Totals> totals() {
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public int size() {
+        return totals.size();
+    }
+
+    /**
+     * Отпечаток содержимого каждого склада: не зависит от порядка строк в файле и меняется,
+     * если у любого материала склада изменился остаток или описание.
+     */
+    public Map<String, String> fingerprints() {
+        Map<String, Long> sums = new TreeMap<>();
+        totals.forEach((key, t) -> sums.merge(key.storageType(), fingerprint(key.material(), t), Long::sum));
+        Map<String, String> result = new TreeMap<>();
+        sums.forEach((storageType, sum) -> result.put(storageType, String.format("%016x", sum)));
+        return result;
+    }
+
+    // FNV-1a 64 по (material, description, stock) с финальным перемешиванием — суммы по складу почти не коллидируют
+    private static long fingerprint(String material, Totals t) {
+        long h = 0xcbf29ce484222325L;
+        h = fnv(h, material);
+        h = (h ^ 0x1f) * 0x100000001b3L;
+        h = fnv(h, t.getMaterialDescription());
+        h = (h ^ t.availableStock) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long fnv(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    public record Key(String storageType, String material) {}
+
+    public static final class Totals {
+
+        private int availableStock;
+        private String materialDescription;
+        private int rowCount;
+
+        public int getAvailableStock() {
+            return availableStock;
+        }
+
+        public String getMaterialDescription() {
+            return materialDescription != null ? materialDescription : "";
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+    }
+}
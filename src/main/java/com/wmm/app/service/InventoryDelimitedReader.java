@@ -0,0 +1,236 @@
+package com.wmm.app.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Чтение CSV/TSV выгрузки остатков через отображение файла в память ({@link FileChannel#map}).
+ * Байты файла не копируются в heap: для каждой строки запоминаются только границы ячеек в отображённом буфере,
+ * а {@code String} создаётся лишь для тех ячеек, которые запросил обработчик.
+ * <p>
+ * Поддерживаются кавычки по RFC 4180 (разделитель и перевод строки внутри кавычек, {@code ""} как экранированная
+ * кавычка), UTF-8 с BOM и без, переводы строк {@code \n} и {@code \r\n}. Файлы больше окна отображения
+ * читаются последовательными окнами; строка, не поместившаяся целиком, перечитывается со следующего окна.
+ */
+final class InventoryDelimitedReader {
+
+    // окно отображения; MappedByteBuffer адресуется int-ом, поэтому большие файлы читаем кусками
+    private static final long WINDOW = 256L * 1024 * 1024;
+
+    private final long window;
+
+    InventoryDelimitedReader() {
+        this(WINDOW);
+    }
+
+    InventoryDelimitedReader(long window) {
+        this.window = window;
+    }
+
+    /**
+     * @param delimiter разделитель колонок; {@code 0} — определить по первой строке (таб, «;» или «,»)
+     */
+    void read(Path file, byte delimiter, InventorySheetRow.Handler handler) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long pos = 0;
+            RowCursor row = new RowCursor();
+            int rowNum = 0;
+
+            while (pos < size) {
+                long len = Math.min(window, size - pos);
+                boolean last = pos + len == size;
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                row.buf = buf;
+
+                int p = 0;
+                if (pos == 0) {
+                    p = skipBom(buf);
+                    if (delimiter == 0) delimiter = detectDelimiter(buf, p);
+                }
+                row.delimiter = delimiter;
+
+                while (p < buf.limit()) {
+                    int next = row.scan(p, last);
+                    // строка не уместилась в окно — отобразить следующее окно с её начала
+                    if (next < 0) break;
+                    if (!row.isBlank()) handler.row(rowNum++, row);
+                    p = next;
+                }
+                if (p == 0 && !last) throw new IOException("Row longer than " + window + " bytes at offset " + pos);
+                pos += p;
+            }
+        }
+    }
+
+    private static int skipBom(MappedByteBuffer buf) {
+        boolean bom = buf.limit() >= 3 && (buf.get(0) & 0xFF) == 0xEF && (buf.get(1) & 0xFF) == 0xBB && (buf.get(2) & 0xFF) == 0xBF;
+        return bom ? 3 : 0;
+    }
+
+    /**
+     * Разделитель по первой строке: чего больше вне кавычек — табов, «;» или «,».
+     * Excel в русской/польской локали сохраняет CSV через «;».
+     */
+    static byte detectDelimiter(MappedByteBuffer buf, int from) {
+        int tabs = 0, semicolons = 0, commas = 0;
+        boolean quoted = false;
+        for (int i = from; i < buf.limit(); i++) {
+            byte b = buf.get(i);
+            if (b == '"') quoted = !quoted;
+            else if (!quoted) {
+                if (b == '\n') break;
+                if (b == '\t') tabs++;
+                else if (b == ';') semicolons++;
+                else if (b == ',') commas++;
+            }
+        }
+        if (tabs >= semicolons && tabs >= commas && tabs > 0) return '\t';
+        return semicolons >= commas && semicolons > 0 ? (byte) ';' : (byte) ',';
+    }
+
+    /**
+     * Текущая строка: границы ячеек в отображённом буфере. Объект переиспользуется для всех строк файла.
+     */
+    private static final class RowCursor implements InventorySheetRow, CharSequence {
+
+        private MappedByteBuffer buf;
+        private byte delimiter;
+
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] escaped = new boolean[16];
+        private int size;
+
+        // общий буфер для декодирования запрошенной ячейки
+        private byte[] scratch = new byte[256];
+
+        // ячейка, которую сейчас видит парсер количества через CharSequence
+        private int viewStart;
+        private int viewEnd;
+
+        /**
+         * Разбирает строку, начинающуюся с {@code p}.
+         *
+         * @return позиция начала следующей строки или {@code -1}, если строка обрывается на границе окна
+         */
+        int scan(int p, boolean last) {
+            int limit = buf.limit();
+            size = 0;
+            while (true) {
+                ensureCapacity(size + 1);
+                boolean esc = false;
+                int start, end;
+                if (p < limit && buf.get(p) == '"') {
+                    start = ++p;
+                    while (true) {
+                        if (p >= limit) {
+                            if (!last) return -1;
+                            end = p;
+                            break;
+                        }
+                        if (buf.get(p) == '"') {
+                            if (p + 1 < limit && buf.get(p + 1) == '"') {
+                                esc = true;
+                                p += 2;
+                                continue;
+                            }
+                            if (p + 1 >= limit && !last) return -1;
+                            end = p++;
+                            break;
+                        }
+                        p++;
+                    }
+                    // мусор между закрывающей кавычкой и разделителем игнорируем
+                    while (p < limit && buf.get(p) != delimiter && buf.get(p) != '\n') p++;
+                } else {
+                    start = p;
+                    while (p < limit && buf.get(p) != delimiter && buf.get(p) != '\n') p++;
+                    end = p;
+                    if (end > start && buf.get(end - 1) == '\r') end--;
+                }
+                starts[size] = start;
+                ends[size] = end;
+                escaped[size] = esc;
+                size++;
+
+                if (p >= limit) return last ? limit : -1;
+                if (buf.get(p) == '\n') return p + 1;
+                p++; // разделитель
+            }
+        }
+
+        boolean isBlank() {
+            return size == 0 || (size == 1 && starts[0] == ends[0]);
+        }
+
+        private void ensureCapacity(int n) {
+            if (n <= starts.length) return;
+            int cap = Math.max(n, starts.length * 2);
+            starts = Arrays.copyOf(starts, cap);
+            ends = Arrays.copyOf(ends, cap);
+            escaped = Arrays.copyOf(escaped, cap);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int quantity(int c) {
+            if (c < 0 || c >= size) return 0;
+            // парсер читает байты ячейки прямо из буфера; многобайтные NBSP видит как нецифровые символы и пропускает
+            viewStart = starts[c];
+            viewEnd = ends[c];
+            return StockQuantityParser.parse(this);
+        }
+
+        @Override
+        public int length() {
+            return viewEnd - viewStart;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buf.get(viewStart + index) & 0xFF);
+        }
+
+        // те же байты-как-символы, что и charAt, — копией, окно живёт только до следующей ячейки
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, length());
+            char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) chars[i] = charAt(start + i);
+            return new String(chars);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+
+        @Override
+        public String cell(int c) {
+            if (c < 0 || c >= size) return null;
+            int start = starts[c];
+            int len = ends[c] - start;
+            if (len == 0) return "";
+            if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+            int n = 0;
+            for (int i = start; i < start + len; i++) {
+                byte b = buf.get(i);
+                scratch[n++] = b;
+                // "" внутри кавычек → "
+                if (escaped[c] && b == '"' && i + 1 < start + len && buf.get(i + 1) == '"') i++;
+            }
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+    }
+}
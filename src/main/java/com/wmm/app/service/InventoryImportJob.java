@@ -0,0 +1,104 @@
+package com.wmm.app.service;
+
+import com.wmm.app.service.dto.InventoryImportJobDTO;
+import com.wmm.app.service.dto.InventoryImportReportDTO;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогресс одного импорта остатков. Пишется потоком импорта, читается запросами опроса статуса.
+ */
+public class InventoryImportJob {
+
+    public enum Phase {
+        QUEUED,
+        PARSING,
+        UPSERTING,
+        DONE,
+        FAILED,
+    }
+
+    private final String id;
+    private final String originalFilename;
+    private final String uploadedBy;
+    private final Instant startedAt = Instant.now();
+
+    private volatile Phase phase = Phase.QUEUED;
+    private final AtomicInteger rowsParsed = new AtomicInteger();
+    private final AtomicInteger rowsUpserted = new AtomicInteger();
+    private final AtomicInteger totalKeys = new AtomicInteger();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+    private volatile InventoryImportReportDTO report;
+    private volatile Instant finishedAt;
+
+    public InventoryImportJob(String id, String originalFilename, String uploadedBy) {
+        this.id = id;
+        this.originalFilename = originalFilename;
+        this.uploadedBy = uploadedBy;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public String getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void phase(Phase phase) {
+        this.phase = phase;
+    }
+
+    void rowParsed() {
+        rowsParsed.incrementAndGet();
+    }
+
+    void addTotalKeys(int count) {
+        totalKeys.addAndGet(count);
+    }
+
+    void keysUpserted(int count) {
+        rowsUpserted.addAndGet(count);
+    }
+
+    void done(InventoryImportReportDTO report) {
+        this.report = report;
+        this.finishedAt = Instant.now();
+        this.phase = Phase.DONE;
+    }
+
+    void failed(Throwable e) {
+        errors.add(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        this.finishedAt = Instant.now();
+        this.phase = Phase.FAILED;
+    }
+
+    public InventoryImportJobDTO toDTO() {
+        return new InventoryImportJobDTO(
+            id,
+            originalFilename,
+            phase.name(),
+            rowsParsed.get(),
+            totalKeys.get(),
+            rowsUpserted.get(),
+            List.copyOf(errors),
+            report,
+            startedAt,
+            finishedAt
+        );
+    }
+}
@@ -0,0 +1,102 @@
+package com.wmm.app.service;
+
+import com.wmm.app.service.dto.InventoryImportJobDTO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Фоновый импорт остатков: файл сохраняется во временный файл, HTTP-запрос сразу получает id задачи,
+ * а сам импорт выполняется на общем {@code taskExecutor} и фиксируется порциями.
+ */
+@Service
+public class InventoryImportJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InventoryImportJobService.class);
+
+    // сколько держать завершённые задачи, чтобы UI успел забрать результат
+    private static final Duration FINISHED_RETENTION = Duration.ofHours(1);
+
+    private final InventoryImportService importService;
+    private final Executor taskExecutor;
+
+    private final Map<String, InventoryImportJob> jobs = new ConcurrentHashMap<>();
+
+    public InventoryImportJobService(
+        InventoryImportService importService,
+        @Qualifier("taskExecutor") Executor taskExecutor
+    ) {
+        this.importService = importService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    public InventoryImportJobDTO submit(MultipartFile file, boolean wipe, String uploadedBy) throws IOException {
+        if (file == null || file.isEmpty()) throw new IllegalArgumentException("Empty file");
+        String original = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown.xlsx";
+
+        evictFinished();
+
+        String ext = StringUtils.getFilenameExtension(original);
+        Path tmp = Files.createTempFile("inventory-import-", ext != null ? "." + ext : ".tmp");
+        file.transferTo(tmp);
+
+        InventoryImportJob job = new InventoryImportJob(UUID.randomUUID().toString(), original, uploadedBy);
+        jobs.put(job.getId(), job);
+
+        try {
+            taskExecutor.execute(() -> run(job, tmp, wipe));
+        } catch (RejectedExecutionException e) {
+            // очередь пула заполнена: задача так и осталась бы в очереди, а временный файл — на диске
+            jobs.remove(job.getId());
+            Files.deleteIfExists(tmp);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Import queue is full, try again later", e);
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Состояние задачи — только для того, кто её запустил, и для администратора; чужая задача выглядит как отсутствующая.
+     */
+    public Optional<InventoryImportJobDTO> find(String jobId, String requester, boolean admin) {
+        return Optional.ofNullable(jobs.get(jobId))
+            .filter(job -> admin || job.getUploadedBy().equals(requester))
+            .map(InventoryImportJob::toDTO);
+    }
+
+    private void run(InventoryImportJob job, Path file, boolean wipe) {
+        try {
+            job.done(importService.importSource(job.getOriginalFilename(), new FileSystemResource(file), wipe, job.getUploadedBy(), job));
+        } catch (Exception e) {
+            LOG.error("Inventory import job {} ({}) failed", job.getId(), job.getOriginalFilename(), e);
+            job.failed(e);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Could not delete temp file {}", file, e);
+            }
+        }
+    }
+
+    private void evictFinished() {
+        Instant threshold = Instant.now().minus(FINISHED_RETENTION);
+        jobs.values().removeIf(j -> j.getFinishedAt() != null && j.getFinishedAt().isBefore(threshold));
+    }
+}
@@ -1,30 +1,55 @@
 package com.wmm.app.service;
 
-import com.wmm.app.domain.InventoryCurrent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wmm.app.domain.InventoryRow;
 import com.wmm.app.domain.InventoryUpload;
 import com.wmm.app.repository.InventoryCurrentRepository;
+import com.wmm.app.repository.InventoryCurrentRepository.StockSnapshot;
+import com.wmm.app.repository.InventoryCurrentRepositoryWithBulkUpsert.UpsertRow;
+import com.wmm.app.repository.InventoryCurrentRepositoryWithBulkUpsert.UpsertedKey;
 import com.wmm.app.repository.InventoryRowRepository;
 import com.wmm.app.repository.InventoryUploadRepository;
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Key;
 import com.wmm.app.service.dto.InventoryImportReportDTO;
-import jakarta.transaction.Transactional;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 public class InventoryImportService {
 
-    private final org.apache.poi.ss.usermodel.DataFormatter formatter = new org.apache.poi.ss.usermodel.DataFormatter();
-
+    // заголовок без регистра и всего, кроме латиницы и цифр: "Available Stock" → "availablestock"
     private static String norm(String s) {
-        return s == null ? "" : s.toLowerCase().replaceAll("[^a-z0-9]+", "");
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = Character.toLowerCase(s.charAt(i));
+            if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) sb.append(ch);
+        }
+        return sb.toString();
     }
 
     private static final List<String> STORAGE_TYPE_ALIASES = List.of("storagetype", "stgetype", "storagelocation");
@@ -38,150 +63,370 @@ public class InventoryImportService {
         "stock"
     );
 
+    // выгрузки с разделителями; всё остальное читается как XLSX
+    private static final Set<String> DELIMITED_EXTENSIONS = Set.of("csv", "tsv", "txt");
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // размер порции истории, фиксируемой отдельной транзакцией
+    private static final int HISTORY_CHUNK = 10_000;
+    // сколько ключей склада отправлять одним upsert-запросом
+    private static final int UPSERT_CHUNK = 1_000;
+
     private final InventoryUploadRepository uploadRepo;
     private final InventoryRowRepository rowRepo;
     private final InventoryCurrentRepository currentRepo;
     private final InventoryVisiblePerStorageService visiblePerStorageService;
+    private final CatalogVersions catalogVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate partitionTransaction;
+    private final AsyncTaskExecutor partitionExecutor;
 
     public InventoryImportService(
         InventoryUploadRepository uploadRepo,
         InventoryRowRepository rowRepo,
         InventoryCurrentRepository currentRepo,
-        InventoryVisiblePerStorageService visiblePerStorageService
+        InventoryVisiblePerStorageService visiblePerStorageService,
+        CatalogVersions catalogVersions,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("inventoryImportExecutor") AsyncTaskExecutor partitionExecutor
     ) {
         this.uploadRepo = uploadRepo;
         this.rowRepo = rowRepo;
         this.currentRepo = currentRepo;
         this.visiblePerStorageService = visiblePerStorageService;
+        this.catalogVersions = catalogVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // пул ограничен (AsyncConfiguration): каждый поток держит соединение из пула Hikari на время своего склада
+        this.partitionExecutor = partitionExecutor;
     }
 
-    @Transactional
-    public InventoryImportReportDTO importFile(MultipartFile file, String uploadedBy) throws Exception {
+    public InventoryImportReportDTO importFile(MultipartFile file, boolean wipe, String uploadedBy) throws Exception {
         if (file == null || file.isEmpty()) throw new IllegalArgumentException("Empty file");
         String original = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown.xlsx";
 
-        List<InventoryRow> parsed = new ArrayList<>();
-        Set<String> storageTypes = new HashSet<>();
-
-        try (InputStream is = file.getInputStream(); Workbook wb = new XSSFWorkbook(is)) {
-            Sheet sheet = wb.getSheetAt(0);
-            if (sheet == null) throw new IllegalArgumentException("No sheet 0");
-
-            // найти индексы нужных колонок по заголовкам
-            Row header = sheet.getRow(0);
-            Map<String, Integer> idx = headerMap(header);
-
-            for (int r = 1; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
-
-                String storageType = getString(row, idx.get("Storage Type"));
-                String material = getString(row, idx.get("Material"));
-                String materialDescription = getString(row, idx.get("Material Description"));
-                Integer availableStock = getInt(row, idx.get("Available Stock"));
-
-                if (!StringUtils.hasText(storageType) || !StringUtils.hasText(material)) continue;
-
-                InventoryRow ir = new InventoryRow();
-                ir.setStorageType(storageType.trim());
-                ir.setMaterial(material.trim());
-                ir.setMaterialDescription(materialDescription != null ? materialDescription.trim() : "");
-                ir.setAvailableStock(availableStock != null ? availableStock : 0);
-                parsed.add(ir);
-                storageTypes.add(ir.getStorageType());
-            }
+        return importSource(original, file, wipe, uploadedBy, new InventoryImportJob(null, original, uploadedBy));
+    }
 
-            for (String storageType : storageTypes) {
-                visiblePerStorageService.clearVisibleStockForStorage(storageType);
+    /**
+     * Импорт файла с записью прогресса в {@code job}. История фиксируется порциями прямо во время чтения, а склады файла
+     * обрабатываются параллельно, каждый своей транзакцией, — одной огромной транзакции на весь файл нет.
+     * <p>
+     * Импорт дельтовый: побайтно тот же файл, что и в прошлый раз, пропускается целиком; склады с тем же
+     * отпечатком строк пропускаются; в остальных до базы и пересчёта видимых остатков доходят только
+     * материалы, у которых изменился остаток или описание. {@code wipe} отключает все пропуски и перезагружает
+     * каждый склад целиком — очистка идёт уже после разбора файла, в транзакции перезагрузки склада.
+     */
+    public InventoryImportReportDTO importSource(
+        String original,
+        InputStreamSource source,
+        boolean wipe,
+        String uploadedBy,
+        InventoryImportJob job
+    ) throws Exception {
+        job.phase(InventoryImportJob.Phase.PARSING);
+        String contentHash = sha256(source);
+        if (!wipe) {
+            Optional<InventoryUpload> last = uploadRepo.findFirstByOrderByIdDesc();
+            if (last.isPresent() && contentHash.equals(last.get().getContentHash())) {
+                return unchangedFileReport(original, last.get());
             }
         }
 
-        // создать запись загрузки
+        // запись загрузки создаётся до разбора: история пишется порциями прямо по ходу чтения.
+        // хеш и отпечатки пишутся только в конце: иначе склад, не доехавший до базы, считался бы неизменным
         InventoryUpload up = new InventoryUpload();
         up.setOriginalFilename(original);
         up.setUploadedBy(uploadedBy);
         up.setUploadedAt(Instant.now());
-        up.setTotalRows(parsed.size());
+        up.setTotalRows(0);
         up.setAddedCount(0);
         up.setUpdatedCount(0);
-        up.setStorageTypesFound(storageTypes.isEmpty() ? "[]" : toJsonArray(storageTypes));
+        up.setStorageTypesFound("[]");
         uploadRepo.save(up);
 
-        // сохранить строки загрузки (связать upload)
-        for (InventoryRow ir : parsed) ir.setUpload(up);
-        rowRepo.saveAll(parsed);
+        // строки не копятся: в памяти только порция истории и агрегаты по (склад, материал)
+        List<InventoryRow> history = new ArrayList<>(HISTORY_CHUNK);
+        AtomicInteger totalRows = new AtomicInteger();
+        Set<String> storageTypes = new HashSet<>();
+        InventoryAggregator aggregator = new InventoryAggregator();
+
+        Map<String, Integer> idx = new HashMap<>();
+        InventorySheetRow.Handler handler = (rowNum, row) -> {
+            // первая строка листа — заголовок: найти индексы нужных колонок
+            if (idx.isEmpty()) {
+                idx.putAll(headerMap(row));
+                return;
+            }
 
-        // агрегировать по (storageType, material) и обновить InventoryCurrent
-        Map<String, Integer> agg = parsed
-            .stream()
-            .collect(
-                Collectors.groupingBy(
-                    ir -> ir.getStorageType() + "||" + ir.getMaterial(),
-                    Collectors.summingInt(InventoryRow::getAvailableStock)
-                )
-            );
+            String storageType = getString(row, idx.get("Storage Type"));
+            String material = getString(row, idx.get("Material"));
+            String materialDescription = getString(row, idx.get("Material Description"));
+            int availableStock = getInt(row, idx.get("Available Stock"));
+
+            if (!StringUtils.hasText(storageType) || !StringUtils.hasText(material)) return;
+
+            InventoryRow ir = new InventoryRow();
+            ir.setStorageType(storageType.trim());
+            ir.setMaterial(material.trim());
+            ir.setMaterialDescription(materialDescription != null ? materialDescription.trim() : "");
+            ir.setAvailableStock(availableStock);
+            totalRows.incrementAndGet();
+            storageTypes.add(ir.getStorageType());
+            aggregator.add(ir.getStorageType(), ir.getMaterial(), ir.getMaterialDescription(), ir.getAvailableStock());
+            history.add(ir);
+            if (history.size() == HISTORY_CHUNK) copyHistory(up.getId(), history);
+            job.rowParsed();
+        };
 
+        try {
+            String ext = StringUtils.getFilenameExtension(original);
+            if (ext != null && DELIMITED_EXTENSIONS.contains(ext.toLowerCase(Locale.ROOT))) {
+                // CSV/TSV: файл отображается в память, ячейки режутся прямо по отображённому буферу
+                byte delimiter = "tsv".equalsIgnoreCase(ext) ? (byte) '\t' : 0;
+                readLocalFile(source, path -> new InventoryDelimitedReader().read(path, delimiter, handler));
+            } else {
+                // потоковое чтение: строки приходят по одной, DOM листа не строится; пакет открывается с диска,
+                // чтобы части zip (и XML листа) не буферизовались в памяти
+                readLocalFile(source, path -> new InventoryXlsxStreamReader().read(path.toFile(), handler));
+            }
+            if (!history.isEmpty()) copyHistory(up.getId(), history);
+        } catch (Exception e) {
+            // файл не дочитан: загрузки не было, уже записанную часть истории убираем
+            transactionTemplate.executeWithoutResult(status -> {
+                rowRepo.deleteAllByUploadIdInBatch(up.getId());
+                uploadRepo.deleteById(up.getId());
+            });
+            throw e;
+        }
+
+        // склады, строки которых совпадают с последней загрузкой этого склада, не трогаем вовсе
+        Map<String, String> fingerprints = aggregator.fingerprints();
+        Map<String, String> previous = wipe ? Map.of() : previousFingerprints(fingerprints.keySet());
+        Set<String> unchangedTypes = new TreeSet<>();
+        fingerprints.forEach((st, fp) -> {
+            if (fp.equals(previous.get(st))) unchangedTypes.add(st);
+        });
+
+        // агрегаты уже собраны при чтении; сверяем их со снимком склада и оставляем только изменившиеся
+        Map<String, List<UpsertRow>> byStorage = new TreeMap<>();
+        aggregator
+            .totals()
+            .forEach((key, t) -> {
+                if (unchangedTypes.contains(key.storageType())) return;
+                byStorage
+                    .computeIfAbsent(key.storageType(), k -> new ArrayList<>())
+                    .add(new UpsertRow(key.storageType(), key.material(), t.getMaterialDescription(), t.getAvailableStock()));
+            });
+        if (wipe) {
+            // "стереть всё": склады, которых нет в файле, тоже очищаются — каждый своей транзакцией, как и остальные
+            for (String st : currentRepo.findDistinctStorageTypes()) byStorage.putIfAbsent(st, new ArrayList<>());
+        }
+
+        // склады обрабатываются параллельно, каждый в своей транзакции: медленный склад не держит блокировки остальных
+        job.phase(InventoryImportJob.Phase.UPSERTING);
+        Instant now = Instant.now();
+        Map<String, Future<PartitionResult>> partitions = new LinkedHashMap<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        byStorage.forEach((st, rows) -> partitions.put(st, submitPartition(st, rows, wipe, now, job, aborted)));
+
+        // ждём все склады, даже после ошибки: нужно знать, какие из них зафиксированы
         int added = 0, updated = 0;
-        for (Map.Entry<String, Integer> e : agg.entrySet()) {
-            String[] parts = e.getKey().split("\\|\\|", 2);
-            String st = parts[0];
-            String mat = parts[1];
-            Integer sum = e.getValue();
-
-            Optional<InventoryCurrent> existingOpt = currentRepo.findByStorageTypeAndMaterial(st, mat);
-            if (existingOpt.isPresent()) {
-                InventoryCurrent ec = existingOpt.get();
-                if (!Objects.equals(ec.getAvailableStock(), sum)) {
-                    ec.setAvailableStock(sum);
-                    ec.setUpdatedAt(Instant.now());
-                    // обновляем описание последней строки для читаемости
-                    ec.setMaterialDescription(
-                        parsed
-                            .stream()
-                            .filter(x -> x.getStorageType().equals(st) && x.getMaterial().equals(mat))
-                            .map(InventoryRow::getMaterialDescription)
-                            .filter(Objects::nonNull)
-                            .findFirst()
-                            .orElse(ec.getMaterialDescription())
-                    );
-                    currentRepo.save(ec);
-                    updated++;
-                    visiblePerStorageService.recalculate(st, mat);
+        Set<String> committedTypes = new TreeSet<>(unchangedTypes);
+        Exception failure = null;
+        try {
+            for (Map.Entry<String, Future<PartitionResult>> e : partitions.entrySet()) {
+                try {
+                    PartitionResult r = e.getValue().get();
+                    if (r == null) continue;
+                    added += r.added();
+                    updated += r.updated();
+                    committedTypes.add(e.getKey());
+                } catch (ExecutionException ex) {
+                    // остальные склады уже зафиксированы или будут: ещё не начатые пропускаем
+                    aborted.set(true);
+                    if (failure == null) failure = ex.getCause() instanceof Exception cause ? cause : ex;
                 }
+            }
+        } finally {
+            // мог появиться новый склад — меняется список складов
+            catalogVersions.bumpAll();
+        }
+
+        // не merge-им отсоединённую запись: orphanRemoval по пустому rows снёс бы только что записанную историю
+        int addedCount = added, updatedCount = updated;
+        // хеш файла — только если зафиксированы все склады, отпечатки — только зафиксированных
+        String committedHash = failure == null ? contentHash : null;
+        Map<String, String> committedFingerprints = new TreeMap<>(fingerprints);
+        committedFingerprints.keySet().retainAll(committedTypes);
+        String storageTypesFound = storageTypes.isEmpty() ? "[]" : toJsonArray(storageTypes);
+        transactionTemplate.executeWithoutResult(status ->
+            uploadRepo
+                .findById(up.getId())
+                .ifPresent(u -> {
+                    u.setTotalRows(totalRows.get());
+                    u.setStorageTypesFound(storageTypesFound);
+                    u.setAddedCount(addedCount);
+                    u.setUpdatedCount(updatedCount);
+                    u.setContentHash(committedHash);
+                    u.setStorageTypeFingerprints(toJsonObject(committedFingerprints));
+                })
+        );
+        if (failure != null) throw failure;
+
+        InventoryImportReportDTO report = new InventoryImportReportDTO(
+            original,
+            totalRows.get(),
+            added,
+            updated,
+            storageTypes.toArray(new String[0])
+        );
+        report.unchangedStorageTypes = unchangedTypes.toArray(new String[0]);
+        return report;
+    }
+
+    private record PartitionResult(int added, int updated) {}
+
+    // переполненная очередь пула — ошибка склада, как и любая другая: остальные склады дожидаются как обычно
+    private Future<PartitionResult> submitPartition(
+        String storageType,
+        List<UpsertRow> rows,
+        boolean wipe,
+        Instant now,
+        InventoryImportJob job,
+        AtomicBoolean aborted
+    ) {
+        try {
+            return partitionExecutor.submit(() -> aborted.get() ? null : importPartition(storageType, rows, wipe, now, job));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // порция истории — отдельной транзакцией потоком COPY; буфер очищается для следующей порции
+    private void copyHistory(Long uploadId, List<InventoryRow> chunk) {
+        transactionTemplate.executeWithoutResult(status -> rowRepo.copyAll(uploadId, chunk));
+        chunk.clear();
+    }
+
+    /**
+     * Один склад загрузки: сверка со снимком (или очистка при {@code wipe}), upsert изменившихся материалов
+     * и пересчёт их видимых остатков — одной транзакцией, независимой от других складов.
+     */
+    private PartitionResult importPartition(String storageType, List<UpsertRow> rows, boolean wipe, Instant now, InventoryImportJob job) {
+        return partitionTransaction.execute(status -> {
+            List<UpsertRow> upserts;
+            if (wipe) {
+                // очистка и перезагрузка склада в одной транзакции: ошибка откатывает обе
+                currentRepo.deleteAllByStorageTypeInBatch(storageType);
+                visiblePerStorageService.clearVisibleStockForStorage(storageType);
+                upserts = rows;
             } else {
-                InventoryCurrent nc = new InventoryCurrent();
-                nc.setStorageType(st);
-                nc.setMaterial(mat);
-                nc.setMaterialDescription(
-                    parsed
-                        .stream()
-                        .filter(x -> x.getStorageType().equals(st) && x.getMaterial().equals(mat))
-                        .map(InventoryRow::getMaterialDescription)
-                        .filter(Objects::nonNull)
-                        .findFirst()
-                        .orElse("")
-                );
-                nc.setAvailableStock(sum);
-                nc.setUpdatedAt(Instant.now());
-                currentRepo.save(nc);
-                added++;
-                visiblePerStorageService.recalculate(st, mat);
+                upserts = new ArrayList<>();
+                Map<String, StockSnapshot> snapshot = new HashMap<>();
+                for (StockSnapshot s : currentRepo.findSnapshotByStorageType(storageType)) snapshot.put(s.getMaterial(), s);
+
+                for (UpsertRow r : rows) {
+                    StockSnapshot s = snapshot.remove(r.material());
+                    if (
+                        s == null ||
+                        !Objects.equals(s.getAvailableStock(), r.availableStock()) ||
+                        !Objects.equals(s.getMaterialDescription(), r.materialDescription())
+                    ) {
+                        upserts.add(r);
+                    }
+                }
+                // материалы, пропавшие из выгрузки склада, больше не показываем механикам
+                if (!snapshot.isEmpty()) {
+                    visiblePerStorageService.clearVisibleStock(storageType, snapshot.keySet());
+                }
+            }
+            job.addTotalKeys(upserts.size());
+
+            int added = 0, updated = 0;
+            List<Key> changed = new ArrayList<>();
+            for (int from = 0; from < upserts.size(); from += UPSERT_CHUNK) {
+                List<UpsertRow> chunk = upserts.subList(from, Math.min(from + UPSERT_CHUNK, upserts.size()));
+                for (UpsertedKey key : currentRepo.upsertAll(chunk, now)) {
+                    changed.add(new Key(key.storageType(), key.material()));
+                    if (key.inserted()) added++;
+                    else updated++;
+                }
+                job.keysUpserted(chunk.size());
             }
+
+            // видимые остатки пересчитываются одним выражением на склад, а не по материалу
+            if (wipe) visiblePerStorageService.rebuildVisibleStock(storageType);
+            else visiblePerStorageService.rebuildVisibleStock(changed);
+            return new PartitionResult(added, updated);
+        });
+    }
+
+    /**
+     * Последний известный отпечаток каждого склада: ищем по недавним загрузкам, начиная с самой свежей.
+     */
+    private Map<String, String> previousFingerprints(Set<String> storageTypes) {
+        Map<String, String> result = new HashMap<>();
+        for (InventoryUpload u : uploadRepo.findTop50ByStorageTypeFingerprintsIsNotNullOrderByIdDesc()) {
+            if (result.size() == storageTypes.size()) break;
+            parseJsonObject(u.getStorageTypeFingerprints()).forEach((st, fp) -> {
+                if (storageTypes.contains(st)) result.putIfAbsent(st, fp);
+            });
         }
+        return result;
+    }
 
-        up.setAddedCount(added);
-        up.setUpdatedCount(updated);
-        uploadRepo.save(up);
+    private static InventoryImportReportDTO unchangedFileReport(String original, InventoryUpload last) {
+        String[] types = parseJsonArray(last.getStorageTypesFound());
+        InventoryImportReportDTO report = new InventoryImportReportDTO(original, last.getTotalRows(), 0, 0, types);
+        report.unchangedFile = true;
+        report.unchangedStorageTypes = types;
+        return report;
+    }
+
+    @FunctionalInterface
+    private interface PathReader {
+        void read(Path path) throws Exception;
+    }
+
+    /**
+     * Отображать в память и открывать XLSX без буферизации можно только файл на диске: фоновая задача уже
+     * передаёт его, а загрузку из запроса предварительно сбрасываем во временный файл.
+     */
+    private static void readLocalFile(InputStreamSource source, PathReader reader) throws Exception {
+        if (source instanceof FileSystemResource fs) {
+            reader.read(fs.getFile().toPath());
+            return;
+        }
+        Path tmp = Files.createTempFile("inventory-import-", ".tmp");
+        try {
+            try (InputStream is = source.getInputStream()) {
+                Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            reader.read(tmp);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
 
-        return new InventoryImportReportDTO(original, parsed.size(), added, updated, storageTypes.toArray(new String[0]));
+    private static String sha256(InputStreamSource source) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream is = source.getInputStream()) {
+            int n;
+            while ((n = is.read(buf)) > 0) digest.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
-    private Map<String, Integer> headerMap(Row header) {
+    private Map<String, Integer> headerMap(InventorySheetRow header) {
         Map<String, Integer> normToIdx = new HashMap<>();
-        for (int c = 0; c < header.getLastCellNum(); c++) {
-            Cell cell = header.getCell(c);
-            if (cell != null && cell.getStringCellValue() != null) {
-                normToIdx.put(norm(cell.getStringCellValue()), c);
+        for (int c = 0; c < header.size(); c++) {
+            String title = header.cell(c);
+            if (title != null) {
+                normToIdx.put(norm(title), c);
             }
         }
 
@@ -215,36 +460,45 @@ public class InventoryImportService {
         return null;
     }
 
-    private String getString(Row row, Integer idx) {
+    private static String getString(InventorySheetRow row, Integer idx) {
         if (idx == null) return null;
-        Cell cell = row.getCell(idx);
-        return cell == null ? null : formatter.formatCellValue(cell).trim();
+        String v = row.cell(idx);
+        return v == null ? null : v.trim();
     }
 
     /**
-     * Парсинг количества, устойчивый к тысячным пробелам/неразрывным пробелам/точкам/запятым.
-     * Примеры входа: "1 234", "1 234", "1.234", "1,234", "1 234,00" → 1234
+     * Количество, устойчивое к тысячным пробелам/неразрывным пробелам/точкам/запятым (см. {@link StockQuantityParser}).
+     * Примеры входа: "1 234", "1 234", "1.234", "1,234", "1 234,00" → 1234
      */
-    private Integer getInt(Row row, Integer idx) {
-        if (idx == null) return 0;
-        Cell cell = row.getCell(idx);
-        String v = cell == null ? "" : formatter.formatCellValue(cell).trim();
-        if (v.isBlank()) return 0;
-
-        // NBSP и NARROW NBSP
-        v = v.replace("\u00A0", "").replace("\u202F", "");
-        // убрать все, кроме цифр и минуса
-        v = v.replaceAll("[^0-9-]", "");
-
-        if (v.isEmpty() || "-".equals(v)) return 0;
-        try {
-            return Integer.parseInt(v);
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+    private static int getInt(InventorySheetRow row, Integer idx) {
+        return idx == null ? 0 : row.quantity(idx);
     }
 
     private static String toJsonArray(Set<String> set) {
         return set.stream().sorted().map(s -> "\"" + s.replace("\"", "\\\"") + "\"").collect(Collectors.joining(",", "[", "]"));
     }
+
+    private static String toJsonObject(Map<String, String> map) {
+        return map
+            .entrySet()
+            .stream()
+            .map(e -> "\"" + e.getKey().replace("\"", "\\\"") + "\":\"" + e.getValue() + "\"")
+            .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static String[] parseJsonArray(String json) {
+        try {
+            return json == null ? new String[0] : JSON.readValue(json, String[].class);
+        } catch (JsonProcessingException e) {
+            return new String[0];
+        }
+    }
+
+    private static Map<String, String> parseJsonObject(String json) {
+        try {
+            return json == null ? Map.of() : JSON.readValue(json, new TypeReference<Map<String, String>>() {});
+        } catch (JsonProcessingException e) {
+            return Map.of();
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package com.wmm.app.service;
+
+/**
+ * Строка исходного файла остатков. Значения ячеек материализуются лениво — только для тех колонок, которые запросили.
+ */
+interface InventorySheetRow {
+    /**
+     * Количество колонок в строке (индекс последней непустой ячейки + 1).
+     */
+    int size();
+
+    /**
+     * Текст ячейки в том виде, в каком его показывает Excel, или {@code null}, если ячейки нет.
+     */
+    String cell(int col);
+
+    /**
+     * Количество из ячейки (см. {@link StockQuantityParser}); 0 для пустой или отсутствующей ячейки.
+     * Читатели переопределяют метод, чтобы разбирать сырое значение без построения текста ячейки.
+     */
+    default int quantity(int col) {
+        return StockQuantityParser.parse(cell(col));
+    }
+
+    /**
+     * Приёмник строк: вызывается по одной строке за раз, объект строки переиспользуется читателем.
+     */
+    @FunctionalInterface
+    interface Handler {
+        void row(int rowNum, InventorySheetRow row);
+    }
+}
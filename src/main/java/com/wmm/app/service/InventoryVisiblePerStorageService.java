@@ -1,15 +1,18 @@
 package com.wmm.app.service;
 
-import com.wmm.app.domain.InventoryCurrent;
-import com.wmm.app.domain.InventoryVisiblePerStorage;
-import com.wmm.app.domain.MechanicOrderLine;
-import com.wmm.app.repository.InventoryCurrentRepository;
 import com.wmm.app.repository.InventoryVisiblePerStorageRepository;
-import com.wmm.app.repository.MechanicOrderLineRepository;
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Key;
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Visible;
 import jakarta.transaction.Transactional;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -17,56 +20,66 @@ import org.springframework.stereotype.Service;
 public class InventoryVisiblePerStorageService {
 
     private final InventoryVisiblePerStorageRepository visibleRepo;
-    private final InventoryCurrentRepository currentRepo;
-    private final MechanicOrderLineRepository lineRepo;
+    private final ReservedQtyLedger reservedLedger;
+    private final CatalogVersions catalogVersions;
+    private final VisibleStockStream stockStream;
 
     public InventoryVisiblePerStorageService(
         InventoryVisiblePerStorageRepository visibleRepo,
-        InventoryCurrentRepository currentRepo,
-        MechanicOrderLineRepository lineRepo
+        ReservedQtyLedger reservedLedger,
+        CatalogVersions catalogVersions,
+        VisibleStockStream stockStream
     ) {
         this.visibleRepo = visibleRepo;
-        this.currentRepo = currentRepo;
-        this.lineRepo = lineRepo;
+        this.reservedLedger = reservedLedger;
+        this.catalogVersions = catalogVersions;
+        this.stockStream = stockStream;
     }
 
-    public void recalculate(String storageType, String material) {
-        // Получаем фактический остаток
-        InventoryCurrent stock = currentRepo.findByStorageTypeAndMaterial(storageType, material).orElse(null);
-        if (stock == null) return;
-
-        int factualQty = stock.getAvailableStock();
+    /**
+     * Пересчёт видимых остатков всего склада одним SQL-выражением (после импорта).
+     */
+    public void rebuildVisibleStock(String storageType) {
+        visibleRepo.rebuildStorage(storageType, Instant.now());
+        catalogVersions.bump(storageType);
+        stockStream.resync(storageType);
+    }
 
-        // Считаем количество в активных заявках
-        int reserved = lineRepo
-            .findAll()
+    /**
+     * Пересчёт видимых остатков набора ключей (склад, материал) одним SQL-выражением.
+     * Резерв берётся из журнала — строки заявок не читаются.
+     */
+    public void rebuildVisibleStock(Collection<Key> keys) {
+        Map<Key, Long> reserved = new LinkedHashMap<>();
+        for (Key key : keys) reserved.computeIfAbsent(key, k -> reservedLedger.reserved(k.storageType(), k.material()));
+        List<Visible> written = visibleRepo.rebuildKeys(reserved, Instant.now());
+        catalogVersions.bump(keys.stream().map(Key::storageType).collect(Collectors.toSet()));
+        written
             .stream()
-            .filter(line -> Objects.equals(line.getMaterialCode(), material))
-            .filter(line -> {
-                var order = line.getOrder();
-                return order != null && !order.isCompleted() && Objects.equals(order.getStorageType(), storageType);
-            })
-            .mapToInt(MechanicOrderLine::getQty)
-            .sum();
-
-        int visibleQty = Math.max(0, factualQty - reserved);
-
-        // Обновляем или создаём запись
-        InventoryVisiblePerStorage visible = visibleRepo
-            .findByStorageTypeAndMaterial(storageType, material)
-            .orElse(new InventoryVisiblePerStorage());
-
-        visible.setStorageType(storageType);
-        visible.setMaterial(material);
-        visible.setMaterialDescription(stock.getMaterialDescription());
-        visible.setVisibleStock(visibleQty);
-        visible.setUpdatedAt(Instant.now());
+            .collect(Collectors.groupingBy(Visible::storageType, Collectors.toMap(Visible::material, Visible::visibleStock)))
+            .forEach(stockStream::publish);
+    }
 
-        visibleRepo.save(visible);
+    /**
+     * Сверка журнала резервов с БД; видимые остатки исправленных ключей пересчитываются.
+     */
+    @Scheduled(fixedDelay = 10, initialDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void reconcileReservedLedger() {
+        List<Key> repaired = reservedLedger.reconcile();
+        if (!repaired.isEmpty()) rebuildVisibleStock(repaired);
     }
 
     public void clearVisibleStockForStorage(String storageType) {
-        List<InventoryVisiblePerStorage> entries = visibleRepo.findByStorageType(storageType);
-        visibleRepo.deleteAll(entries);
+        visibleRepo.deleteAllByStorageType(storageType);
+        catalogVersions.bump(storageType);
+        stockStream.resync(storageType);
+    }
+
+    public void clearVisibleStock(String storageType, Collection<String> materials) {
+        if (materials.isEmpty()) return;
+        visibleRepo.deleteAllByStorageTypeAndMaterialIn(storageType, materials);
+        catalogVersions.bump(storageType);
+        // удалённая строка видна в витрине как нулевой остаток
+        stockStream.publish(storageType, materials.stream().distinct().collect(Collectors.toMap(Function.identity(), m -> 0)));
     }
 }
@@ -0,0 +1,218 @@
+package com.wmm.app.service;
+
+import java.io.File;
+import java.io.InputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Потоковое чтение первого листа XLSX через событийную модель POI (XSSFReader + SAX).
+ * В отличие от {@code XSSFWorkbook} не строит DOM всей книги: в памяти держится только текущая строка
+ * и таблица общих строк, поэтому потребление heap не зависит от количества строк в файле.
+ */
+final class InventoryXlsxStreamReader {
+
+    private final DataFormatter formatter = new DataFormatter();
+
+    /**
+     * Файл открывается только на чтение и читается с диска по частям; {@code OPCPackage.open(InputStream)}
+     * распаковал бы в память все части пакета, включая XML листа.
+     */
+    void read(File file, InventorySheetRow.Handler handler) throws Exception {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) throw new IllegalArgumentException("No sheet 0");
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(strings, styles, formatter, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        } finally {
+            // пакет открыт только на чтение — закрываем без попытки сохранения
+            pkg.revert();
+        }
+    }
+
+    /**
+     * SAX-обработчик листа. Сырые значения ячеек копятся в переиспользуемых буферах по колонкам,
+     * форматирование (общие строки, числовые форматы) выполняется только при обращении к ячейке.
+     */
+    private static final class SheetHandler extends DefaultHandler implements InventorySheetRow {
+
+        private static final char MISSING = 0;
+        private static final char NUMBER = 'n';
+        private static final char SHARED_STRING = 's';
+        private static final char INLINE_STRING = 'i';
+        private static final char FORMULA_STRING = 'f';
+        private static final char BOOLEAN = 'b';
+        private static final char ERROR = 'e';
+
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final DataFormatter formatter;
+        private final InventorySheetRow.Handler handler;
+
+        private StringBuilder[] values = new StringBuilder[0];
+        private char[] types = new char[0];
+        private int[] styleIdx = new int[0];
+        private int size;
+
+        private int rowNum = -1;
+        private int col = -1;
+        private boolean inValue;
+
+        SheetHandler(
+            ReadOnlySharedStringsTable strings,
+            StylesTable styles,
+            DataFormatter formatter,
+            InventorySheetRow.Handler handler
+        ) {
+            this.strings = strings;
+            this.styles = styles;
+            this.formatter = formatter;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attrs.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                    size = 0;
+                }
+                case "c" -> startCell(attrs);
+                case "v" -> inValue = col >= 0;
+                case "t" -> inValue = col >= 0 && types[col] == INLINE_STRING;
+                default -> {}
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> inValue = false;
+                case "c" -> col = -1;
+                case "row" -> handler.row(rowNum, this);
+                default -> {}
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) values[col].append(ch, start, length);
+        }
+
+        private void startCell(Attributes attrs) {
+            String ref = attrs.getValue("r");
+            int c = ref != null ? columnIndex(ref) : size;
+            ensureCapacity(c + 1);
+            // пропущенные ячейки между предыдущей и текущей
+            for (int i = size; i < c; i++) types[i] = MISSING;
+            size = c + 1;
+            col = c;
+
+            String t = attrs.getValue("t");
+            types[c] = t == null
+                ? NUMBER
+                : switch (t) {
+                    case "s" -> SHARED_STRING;
+                    case "inlineStr" -> INLINE_STRING;
+                    case "str" -> FORMULA_STRING;
+                    case "b" -> BOOLEAN;
+                    case "e" -> ERROR;
+                    default -> NUMBER;
+                };
+            String s = attrs.getValue("s");
+            styleIdx[c] = s != null ? Integer.parseInt(s) : 0;
+            values[c].setLength(0);
+        }
+
+        private void ensureCapacity(int n) {
+            if (n <= values.length) return;
+            int cap = Math.max(n, values.length * 2);
+            StringBuilder[] v = new StringBuilder[cap];
+            System.arraycopy(values, 0, v, 0, values.length);
+            for (int i = values.length; i < cap; i++) v[i] = new StringBuilder(16);
+            char[] t = new char[cap];
+            System.arraycopy(types, 0, t, 0, types.length);
+            int[] s = new int[cap];
+            System.arraycopy(styleIdx, 0, s, 0, styleIdx.length);
+            values = v;
+            types = t;
+            styleIdx = s;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String cell(int c) {
+            if (c < 0 || c >= size || types[c] == MISSING) return null;
+            String raw = values[c].toString();
+            return switch (types[c]) {
+                case SHARED_STRING -> raw.isEmpty() ? "" : strings.getItemAt(Integer.parseInt(raw)).getString();
+                case BOOLEAN -> "0".equals(raw) ? "FALSE" : "TRUE";
+                case NUMBER -> formatNumber(raw, styleIdx[c]);
+                default -> raw;
+            };
+        }
+
+        @Override
+        public int quantity(int c) {
+            if (c < 0 || c >= size || types[c] == MISSING) return 0;
+            // числовая ячейка: разбираем сырое <v> напрямую, без DataFormatter и без String
+            if (types[c] == NUMBER) return StockQuantityParser.parseRaw(values[c]);
+            if (types[c] == INLINE_STRING || types[c] == FORMULA_STRING) return StockQuantityParser.parse(values[c]);
+            return StockQuantityParser.parse(cell(c));
+        }
+
+        private String formatNumber(String raw, int style) {
+            if (raw.isEmpty()) return "";
+            double value;
+            try {
+                value = Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                return raw;
+            }
+            int formatIndex = 0;
+            String formatString = null;
+            XSSFCellStyle cellStyle = styles != null && styles.getNumCellStyles() > style ? styles.getStyleAt(style) : null;
+            if (cellStyle != null) {
+                formatIndex = cellStyle.getDataFormat();
+                formatString = cellStyle.getDataFormatString();
+            }
+            if (formatString == null) formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            return formatter.formatRawCellContents(value, formatIndex, formatString);
+        }
+
+        private static int columnIndex(String ref) {
+            int c = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char ch = ref.charAt(i);
+                if (ch < 'A' || ch > 'Z') break;
+                c = c * 26 + (ch - 'A' + 1);
+            }
+            return c - 1;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.wmm.app.service;
 
-import com.wmm.app.domain.MechanicTile;
-import com.wmm.app.domain.ProductCategory;
+import com.wmm.app.domain.InventoryVisiblePerStorage;
 import com.wmm.app.repository.InventoryCurrentRepository;
 import com.wmm.app.repository.InventoryVisiblePerStorageRepository;
 import com.wmm.app.repository.MechanicTileRepository;
+import com.wmm.app.service.MechanicCatalogSnapshot.Entry;
+import com.wmm.app.service.MechanicCatalogSnapshot.Hits;
+import com.wmm.app.service.MechanicCatalogSnapshot.Seek;
 import com.wmm.app.service.dto.MechanicTileViewDTO;
+import com.wmm.app.web.rest.errors.BadRequestAlertException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.*;
@@ -19,74 +23,81 @@ public class MechanicCatalogService {
     private final MechanicTileRepository tileRepo;
     private final InventoryCurrentRepository invRepo;
     private final InventoryVisiblePerStorageRepository visibleRepo;
+    private final MechanicCatalogSnapshot snapshot;
 
     public MechanicCatalogService(
         MechanicTileRepository tileRepo,
         InventoryCurrentRepository invRepo,
-        InventoryVisiblePerStorageRepository visibleRepo
+        InventoryVisiblePerStorageRepository visibleRepo,
+        MechanicCatalogSnapshot snapshot
     ) {
         this.tileRepo = tileRepo;
         this.invRepo = invRepo;
         this.visibleRepo = visibleRepo;
+        this.snapshot = snapshot;
     }
 
-    public Page<MechanicTileViewDTO> list(String storageType, String q, String category, Pageable pageable) {
-        // 1) находим id подходящих плиток по складу и поиску
+    /**
+     * Страница витрины склада из снимка в памяти ({@link MechanicCatalogSnapshot}): фильтры, порядок {@code (title, id)}
+     * и страницы считаются без запросов к БД, из базы подмешивается только текущий остаток.
+     * Поиск {@code q} — по подстроке названия и кода и по похожему слову в названии, от самых похожих.
+     *
+     * @param after курсор из {@link #cursorOf(MechanicTileViewDTO)} последней плитки предыдущей страницы;
+     *              без него, а также при поиске, страница берётся по номеру из {@code pageable}
+     */
+    public Page<MechanicTileViewDTO> list(String storageType, String q, String category, String after, Pageable pageable) {
         String qNorm = (q == null || q.isBlank()) ? null : q.trim();
-        List<Long> ids = tileRepo.findActiveIdsByWarehouseAndQuery(storageType, qNorm);
-        if (ids.isEmpty()) return Page.empty(pageable);
+        String catNorm = (category == null || category.isBlank()) ? null : category.trim();
+        Seek seek = after == null || after.isBlank() ? null : decodeCursor(after);
 
-        // пагинация руками по id (simple)
-        int from = (int) pageable.getOffset();
-        int to = Math.min(from + pageable.getPageSize(), ids.size());
-        if (from >= ids.size()) return new PageImpl<>(List.of(), pageable, ids.size());
-        List<Long> pageIds = ids.subList(from, to);
+        Hits hits = snapshot.forWarehouse(storageType).page(qNorm, catNorm, seek, pageable.getOffset(), pageable.getPageSize());
+        if (hits.total() == 0) return Page.empty(pageable);
 
-        // 2) грузим сами плитки — уже с жадной загрузкой categories/warehouses
-        List<MechanicTile> tiles = tileRepo.findAllWithEagerRelationshipsByIdIn(pageIds);
-
-        // 3) фильтр по категории (если задана)
-        if (category != null && !category.isBlank()) {
-            String catNorm = category.trim();
-            tiles = tiles
-                .stream()
-                .filter(t ->
-                    t.getCategories().stream().map(ProductCategory::getName).anyMatch(c -> c != null && c.equalsIgnoreCase(catNorm))
+        Map<String, Integer> stockByMaterial = stockOf(storageType, hits.tiles().stream().map(Entry::materialCode).toList());
+        List<MechanicTileViewDTO> dto = hits
+            .tiles()
+            .stream()
+            .map(e ->
+                new MechanicTileViewDTO(
+                    e.id(),
+                    e.title(),
+                    e.comment(),
+                    e.imageUrl(),
+                    e.materialCode(),
+                    stockByMaterial.getOrDefault(e.materialCode(), 0),
+                    e.minStockAlert(),
+                    e.categories()
                 )
-                .collect(Collectors.toList());
-        }
+            )
+            .collect(Collectors.toList());
+        return new PageImpl<>(dto, pageable, hits.total());
+    }
 
-        // 4) подмешиваем остаток
-        List<MechanicTileViewDTO> dto = tiles
+    // остатки всех плиток страницы одним запросом
+    private Map<String, Integer> stockOf(String storageType, Collection<String> materials) {
+        if (materials.isEmpty()) return Map.of();
+        return visibleRepo
+            .findByStorageTypeAndMaterialIn(storageType, new HashSet<>(materials))
             .stream()
-            .map(t -> {
-                Integer stock = visibleRepo
-                    .findByStorageTypeAndMaterial(storageType, t.getMaterialCode())
-                    .map(v -> v.getVisibleStock())
-                    .orElse(0);
-
-                Set<String> cats = t
-                    .getCategories()
-                    .stream()
-                    .map(ProductCategory::getName)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toCollection(TreeSet::new));
+            .collect(Collectors.toMap(InventoryVisiblePerStorage::getMaterial, InventoryVisiblePerStorage::getVisibleStock, (a, b) -> a));
+    }
 
-                //  Добавили передачу minStockAlert
-                return new MechanicTileViewDTO(
-                    t.getId(),
-                    t.getTitle(),
-                    t.getComment(),
-                    t.getImageUrl(),
-                    t.getMaterialCode(),
-                    stock,
-                    t.getMinStockAlert(),
-                    cats
-                );
-            })
-            .collect(Collectors.toList());
+    /**
+     * Непрозрачный курсор keyset-пагинации: позиция плитки в порядке {@code (title, id)}.
+     */
+    public static String cursorOf(MechanicTileViewDTO tile) {
+        String raw = tile.id + ":" + (tile.title == null ? "" : tile.title);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return new PageImpl<>(dto, pageable, ids.size());
+    private static Seek decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new Seek(raw.substring(sep + 1), Long.parseLong(raw.substring(0, sep)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestAlertException("Invalid catalog cursor", "mechanicTile", "badcursor");
+        }
     }
 
     public List<String> categoriesForWarehouse(String storageType) {
@@ -0,0 +1,330 @@
+package com.wmm.app.service;
+
+import com.wmm.app.domain.MechanicTile;
+import com.wmm.app.domain.ProductCategory;
+import com.wmm.app.domain.Warehouse;
+import com.wmm.app.repository.MechanicTileRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Витрина механика в памяти: по каждому складу — неизменяемый массив плиток в порядке {@code (title, id)}
+ * и индекс «категория → позиции». Чтение идёт без блокировок по volatile-ссылке на карту снимков;
+ * изменённый склад собирается заново и подменяется целиком.
+ * <p>
+ * Ресурсы плиток, категорий и складов после коммита только помечают, что изменилось. Пометки применяет
+ * ближайший читатель в своей транзакции: перечитывает из БД лишь затронутые плитки
+ * и пересобирает склады, где они были или появились. Изменение склада сбрасывает снимок целиком.
+ */
+@Service
+public class MechanicCatalogSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MechanicCatalogSnapshot.class);
+
+    private final MechanicTileRepository tileRepo;
+    private final CatalogVersions versions;
+
+    private volatile Map<String, WarehouseCatalog> catalogs = Map.of();
+    // снимок актуален, пока builtVersion == version; invalidate() увеличивает version
+    private final AtomicLong version = new AtomicLong();
+    private volatile long builtVersion = -1;
+    private final Set<Long> dirtyTiles = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyCategories = ConcurrentHashMap.newKeySet();
+
+    public MechanicCatalogSnapshot(MechanicTileRepository tileRepo, CatalogVersions versions) {
+        this.tileRepo = tileRepo;
+        this.versions = versions;
+    }
+
+    /**
+     * Снимок склада. Если есть непримененные изменения — сначала применяет их.
+     */
+    WarehouseCatalog forWarehouse(String storageType) {
+        if (builtVersion != version.get() || !dirtyTiles.isEmpty() || !dirtyCategories.isEmpty()) refresh();
+        return catalogs.getOrDefault(storageType, WarehouseCatalog.EMPTY);
+    }
+
+    /**
+     * Плитка создана, изменена или удалена.
+     */
+    public void tileChanged(Long tileId) {
+        if (tileId == null) return;
+        AfterCommit.run(() -> {
+            dirtyTiles.add(tileId);
+            versions.incrementAll();
+        });
+    }
+
+    /**
+     * Категория переименована или удалена: перечитать плитки, где она есть.
+     */
+    public void categoryChanged(Long categoryId) {
+        if (categoryId == null) return;
+        AfterCommit.run(() -> {
+            dirtyCategories.add(categoryId);
+            versions.incrementAll();
+        });
+    }
+
+    /**
+     * Собрать снимок заново при следующем чтении.
+     */
+    public void invalidate() {
+        AfterCommit.run(() -> {
+            version.incrementAndGet();
+            versions.incrementAll();
+        });
+    }
+
+    private synchronized void refresh() {
+        long v = version.get();
+        if (builtVersion != v) {
+            // сброс во время сборки увеличит version, и следующий читатель соберёт снимок ещё раз
+            dirtyTiles.clear();
+            dirtyCategories.clear();
+            catalogs = buildAll();
+            builtVersion = v;
+            return;
+        }
+
+        Set<Long> ids = drain(dirtyTiles);
+        Set<Long> categories = drain(dirtyCategories);
+        Map<String, WarehouseCatalog> current = catalogs;
+        if (!categories.isEmpty()) {
+            for (WarehouseCatalog catalog : current.values()) {
+                for (Entry e : catalog.tiles) {
+                    if (!Collections.disjoint(e.categoryIds(), categories)) ids.add(e.id());
+                }
+            }
+        }
+        if (ids.isEmpty()) return;
+
+        List<Entry> fresh = tileRepo
+            .findAllWithEagerRelationshipsByIdIn(new ArrayList<>(ids))
+            .stream()
+            .filter(t -> Boolean.TRUE.equals(t.getActive()))
+            .map(Entry::of)
+            .toList();
+
+        Map<String, List<Entry>> added = new HashMap<>();
+        for (Entry e : fresh) {
+            for (String code : e.warehouses()) added.computeIfAbsent(code, k -> new ArrayList<>()).add(e);
+        }
+
+        Map<String, WarehouseCatalog> next = new HashMap<>(current);
+        Set<String> touched = new HashSet<>(added.keySet());
+        current.forEach((code, catalog) -> {
+            if (catalog.containsAny(ids)) touched.add(code);
+        });
+        for (String code : touched) {
+            List<Entry> entries = new ArrayList<>();
+            for (Entry e : current.getOrDefault(code, WarehouseCatalog.EMPTY).tiles) {
+                if (!ids.contains(e.id())) entries.add(e);
+            }
+            entries.addAll(added.getOrDefault(code, List.of()));
+            if (entries.isEmpty()) next.remove(code);
+            else next.put(code, WarehouseCatalog.of(entries));
+        }
+        catalogs = Map.copyOf(next);
+        LOG.debug("Catalog snapshot: {} tiles reloaded, warehouses {}", ids.size(), touched);
+    }
+
+    private Map<String, WarehouseCatalog> buildAll() {
+        Map<String, List<Entry>> byCode = new HashMap<>();
+        for (MechanicTile t : tileRepo.findAllWithEagerRelationships()) {
+            if (!Boolean.TRUE.equals(t.getActive())) continue;
+            Entry e = Entry.of(t);
+            for (String code : e.warehouses()) byCode.computeIfAbsent(code, k -> new ArrayList<>()).add(e);
+        }
+        Map<String, WarehouseCatalog> built = new HashMap<>();
+        byCode.forEach((code, entries) -> built.put(code, WarehouseCatalog.of(entries)));
+        LOG.debug("Catalog snapshot built for {} warehouses", built.size());
+        return Map.copyOf(built);
+    }
+
+    private static Set<Long> drain(Set<Long> source) {
+        Set<Long> out = new HashSet<>();
+        for (Iterator<Long> it = source.iterator(); it.hasNext();) {
+            out.add(it.next());
+            it.remove();
+        }
+        return out;
+    }
+
+    /**
+     * Плитка в снимке; ключи и триграммы для поиска посчитаны заранее.
+     */
+    record Entry(
+        long id,
+        String title,
+        String comment,
+        String imageUrl,
+        String materialCode,
+        int minStockAlert,
+        Set<String> categories,
+        Set<Long> categoryIds,
+        Set<String> warehouses,
+        String titleKey,
+        String materialKey,
+        Set<String> categoryKeys,
+        long[] titleTrigrams,
+        long[] materialTrigrams
+    ) {
+        static Entry of(MechanicTile t) {
+            Set<String> names = new TreeSet<>();
+            Set<Long> ids = new HashSet<>();
+            for (ProductCategory c : t.getCategories()) {
+                if (c.getName() != null) names.add(c.getName());
+                if (c.getId() != null) ids.add(c.getId());
+            }
+            Set<String> codes = new HashSet<>();
+            for (Warehouse w : t.getWarehouses()) {
+                if (w.getCode() != null) codes.add(w.getCode());
+            }
+            Set<String> keys = new HashSet<>();
+            for (String n : names) keys.add(key(n));
+            String title = t.getTitle() == null ? "" : t.getTitle();
+            return new Entry(
+                t.getId(),
+                title,
+                t.getComment(),
+                t.getImageUrl(),
+                t.getMaterialCode(),
+                t.getMinStockAlert() == null ? 0 : t.getMinStockAlert(),
+                Collections.unmodifiableSet(names),
+                Set.copyOf(ids),
+                Set.copyOf(codes),
+                key(title),
+                key(t.getMaterialCode()),
+                Set.copyOf(keys),
+                Trigrams.of(title),
+                Trigrams.of(t.getMaterialCode())
+            );
+        }
+    }
+
+    /**
+     * Страница выборки из снимка.
+     */
+    record Hits(List<Entry> tiles, long total) {}
+
+    /**
+     * Последняя плитка предыдущей страницы (keyset в порядке {@code (title, id)}).
+     */
+    record Seek(String title, long id) {}
+
+    /**
+     * Неизменяемый снимок одного склада.
+     */
+    static final class WarehouseCatalog {
+
+        static final WarehouseCatalog EMPTY = new WarehouseCatalog(new Entry[0], Map.of());
+
+        private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::title).thenComparingLong(Entry::id);
+
+        private final Entry[] tiles;
+        // категория (нижний регистр) → позиции в tiles по возрастанию
+        private final Map<String, int[]> byCategory;
+
+        private WarehouseCatalog(Entry[] tiles, Map<String, int[]> byCategory) {
+            this.tiles = tiles;
+            this.byCategory = byCategory;
+        }
+
+        static WarehouseCatalog of(Collection<Entry> entries) {
+            Entry[] tiles = entries.toArray(Entry[]::new);
+            Arrays.sort(tiles, ORDER);
+            Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < tiles.length; i++) {
+                for (String k : tiles[i].categoryKeys()) positions.computeIfAbsent(k, x -> new ArrayList<>()).add(i);
+            }
+            Map<String, int[]> byCategory = new HashMap<>();
+            positions.forEach((k, list) -> byCategory.put(k, list.stream().mapToInt(Integer::intValue).toArray()));
+            return new WarehouseCatalog(tiles, Map.copyOf(byCategory));
+        }
+
+        boolean containsAny(Set<Long> ids) {
+            for (Entry e : tiles) if (ids.contains(e.id())) return true;
+            return false;
+        }
+
+        /**
+         * Выборка: категория, поиск, затем keyset или сдвиг.
+         * Поиск находит подстроку названия или кода и похожее слово в названии ({@link Trigrams}, опечатки);
+         * код материала — только подстрокой, похожий код — это другой материал. Найденное упорядочено
+         * по {@code word_similarity} с названием или кодом, от самых похожих.
+         */
+        Hits page(String q, String category, Seek after, long offset, int limit) {
+            int[] candidates = category == null ? null : byCategory.getOrDefault(key(category), new int[0]);
+            int count = candidates == null ? tiles.length : candidates.length;
+
+            if (q != null) {
+                String qKey = key(q);
+                long[] qTrigrams = Trigrams.distinct(q);
+                List<Entry> matched = new ArrayList<>();
+                List<Double> ranks = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    Entry e = tiles[candidates == null ? i : candidates[i]];
+                    double title = Trigrams.wordSimilarity(qTrigrams, e.titleTrigrams());
+                    boolean hit =
+                        title >= Trigrams.WORD_SIMILARITY_THRESHOLD || e.titleKey().contains(qKey) || e.materialKey().contains(qKey);
+                    if (!hit) continue;
+                    matched.add(e);
+                    ranks.add(Math.max(title, Trigrams.wordSimilarity(qTrigrams, e.materialTrigrams())));
+                }
+                Integer[] order = new Integer[matched.size()];
+                for (int i = 0; i < order.length; i++) order[i] = i;
+                // сортировка устойчивая: при равном ранге остаётся порядок (title, id)
+                Arrays.sort(order, Comparator.comparing(ranks::get, Comparator.reverseOrder()));
+                List<Entry> sorted = new ArrayList<>(order.length);
+                for (Integer i : order) sorted.add(matched.get(i));
+                return new Hits(slice(sorted, offset, limit), sorted.size());
+            }
+
+            int from = after != null ? firstAfter(candidates, count, after) : (int) Math.min(offset, count);
+            int to = Math.min(count, from + limit);
+            List<Entry> out = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) out.add(tiles[candidates == null ? i : candidates[i]]);
+            return new Hits(out, count);
+        }
+
+        // первая позиция среди кандидатов, которая строго больше after в порядке (title, id)
+        private int firstAfter(int[] candidates, int count, Seek after) {
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                Entry e = tiles[candidates == null ? mid : candidates[mid]];
+                int cmp = e.title().compareTo(after.title());
+                if (cmp < 0 || (cmp == 0 && e.id() <= after.id())) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private static List<Entry> slice(List<Entry> list, long offset, int limit) {
+            int from = (int) Math.min(offset, list.size());
+            return list.subList(from, Math.min(list.size(), from + limit));
+        }
+    }
+
+    private static String key(String s) {
+        return Objects.requireNonNullElse(s, "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,11 +1,10 @@
 package com.wmm.app.service;
 
-import com.wmm.app.domain.InventoryCurrent;
 import com.wmm.app.domain.MechanicOrder;
 import com.wmm.app.domain.MechanicOrderLine;
 import com.wmm.app.domain.MechanicTile;
 import com.wmm.app.repository.InventoryCurrentRepository;
-import com.wmm.app.repository.InventoryVisiblePerStorageRepository;
+import com.wmm.app.repository.InventoryCurrentRepositoryWithStockDecrement.InsufficientStockException;
 import com.wmm.app.repository.MechanicOrderRepository;
 import com.wmm.app.repository.MechanicTileRepository;
 import com.wmm.app.service.dto.MechanicOrderDTO;
@@ -15,7 +14,9 @@ import com.wmm.app.web.rest.errors.BadRequestAlertException;
 import jakarta.persistence.EntityNotFoundException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,24 +27,24 @@ public class MechanicOrderService {
     private final MechanicTileRepository tileRepo;
     private final InventoryCurrentRepository invRepo;
     private final MechanicOrderRepository orderRepo;
-    private final InventoryVisiblePerStorageService visiblePerStorageService;
     private final TelegramBotService telegramBotService;
-    private final InventoryVisiblePerStorageRepository visiblePerStorageRepo;
+    private final ReservedQtyLedger reservedLedger;
+    private final VisibleStockRecalcQueue recalcQueue;
 
     public MechanicOrderService(
         MechanicTileRepository tileRepo,
         InventoryCurrentRepository invRepo,
         MechanicOrderRepository orderRepo,
-        InventoryVisiblePerStorageService visiblePerStorageService,
         TelegramBotService telegramBotService,
-        InventoryVisiblePerStorageRepository visiblePerStorageRepo
+        ReservedQtyLedger reservedLedger,
+        VisibleStockRecalcQueue recalcQueue
     ) {
         this.tileRepo = tileRepo;
         this.invRepo = invRepo;
         this.orderRepo = orderRepo;
-        this.visiblePerStorageService = visiblePerStorageService;
         this.telegramBotService = telegramBotService;
-        this.visiblePerStorageRepo = visiblePerStorageRepo;
+        this.reservedLedger = reservedLedger;
+        this.recalcQueue = recalcQueue;
     }
 
     public MechanicOrderResponseDTO confirm(String mechanicLogin, MechanicOrderDTO req) {
@@ -51,23 +52,13 @@ public class MechanicOrderService {
             throw new BadRequestAlertException("error.empty", "mechanicOrder", "empty");
         }
 
-        // 1) валидация остатков
+        // 1) валидация и списание одним условным UPDATE на позицию: всё или ничего
+        Map<String, Integer> qtyByMaterial = new HashMap<>();
         for (MechanicOrderDTO.Line l : req.getLines()) {
-            InventoryCurrent inv = invRepo
-                .findByStorageTypeAndMaterial(req.getStorageType(), l.getMaterial())
-                .orElseThrow(() -> new BadRequestAlertException("error.not_found", "inventory", l.getMaterial()));
-            if (inv.getAvailableStock() < l.getQty()) {
-                throw new BadRequestAlertException("error.not_enough", "inventory", l.getMaterial());
-            }
-        }
-
-        // 2) списание
-        for (MechanicOrderDTO.Line l : req.getLines()) {
-            InventoryCurrent inv = invRepo.findByStorageTypeAndMaterial(req.getStorageType(), l.getMaterial()).orElseThrow();
-            inv.setAvailableStock(inv.getAvailableStock() - l.getQty());
-            invRepo.save(inv);
-            visiblePerStorageService.recalculate(req.getStorageType(), l.getMaterial());
+            qtyByMaterial.merge(l.getMaterial(), l.getQty(), Integer::sum);
         }
+        decrementOrThrow(req.getStorageType(), qtyByMaterial);
+        qtyByMaterial.keySet().forEach(material -> recalcQueue.markDirty(req.getStorageType(), material));
 
         // 3) сбор ответа
         List<MechanicOrderResponseDTO.Line> outLines = new ArrayList<>();
@@ -97,28 +88,28 @@ public class MechanicOrderService {
     public void markAsCompleted(Long orderId) {
         MechanicOrder order = orderRepo.findById(orderId).orElseThrow(() -> new EntityNotFoundException("Заявка не найдена: " + orderId));
 
+        // заявка больше не резервирует свои позиции
+        if (!order.isCompleted()) releaseReserved(order);
         order.setCompleted(true);
         orderRepo.save(order);
 
         if (order.getLines() != null) {
+            // выданное списываем атомарно и без проверки остатка, как и раньше: товар уже физически выдан,
+            // поэтому остаток может уйти в минус; позиции, которых нет в остатках, пропускаются
+            Map<String, Integer> qtyByMaterial = new HashMap<>();
             for (var line : order.getLines()) {
                 if (line.getQty() <= 0) continue;
-
-                invRepo
-                    .findByStorageTypeAndMaterial(order.getStorageType(), line.getMaterialCode())
-                    .ifPresent(inv -> {
-                        inv.setAvailableStock(inv.getAvailableStock() - line.getQty());
-                        invRepo.save(inv);
-                    });
-
-                visiblePerStorageService.recalculate(order.getStorageType(), line.getMaterialCode());
+                qtyByMaterial.merge(line.getMaterialCode(), line.getQty(), Integer::sum);
             }
+            invRepo.subtractAll(order.getStorageType(), qtyByMaterial);
+            order.getLines().forEach(line -> recalcQueue.markDirty(order.getStorageType(), line.getMaterialCode()));
         }
     }
 
     public void cancelOrder(Long orderId) {
         MechanicOrder order = orderRepo.findById(orderId).orElseThrow(() -> new EntityNotFoundException("Заявка не найдена: " + orderId));
 
+        if (!order.isCompleted()) releaseReserved(order);
         order.setCompleted(true); // чтобы скрылась с активных заявок
         order.setCancelled(true); // чтобы отметить как удалённую
         orderRepo.save(order);
@@ -130,7 +121,7 @@ public class MechanicOrderService {
                 .stream()
                 .map(MechanicOrderLine::getMaterialCode)
                 .distinct()
-                .forEach(mat -> visiblePerStorageService.recalculate(order.getStorageType(), mat));
+                .forEach(mat -> recalcQueue.markDirty(order.getStorageType(), mat));
         }
     }
 
@@ -145,6 +136,7 @@ public class MechanicOrderService {
             .findFirst()
             .orElseThrow(() -> new EntityNotFoundException("Позиция не найдена: " + materialCode));
 
+        int oldQty = qty(line.getQty());
         if (newQty == null || newQty <= 0) {
             // Удалить строку
             lines.remove(line);
@@ -155,6 +147,10 @@ public class MechanicOrderService {
             throw new BadRequestAlertException("Нельзя увеличить количество", "mechanicOrder", "invalid_qty");
         }
 
+        if (!order.isCompleted()) {
+            reservedLedger.adjust(order.getStorageType(), materialCode, (newQty == null || newQty <= 0 ? 0 : newQty) - oldQty);
+        }
+
         // Если заявка теперь пустая — отменяем
         if (lines.isEmpty()) {
             order.setCompleted(true);
@@ -164,7 +160,7 @@ public class MechanicOrderService {
         orderRepo.save(order);
 
         // Пересчёт видимых остатков
-        visiblePerStorageService.recalculate(order.getStorageType(), materialCode);
+        recalcQueue.markDirty(order.getStorageType(), materialCode);
     }
 
     @Transactional
@@ -173,6 +169,7 @@ public class MechanicOrderService {
 
         // Получаем ссылку на текущий список
         List<MechanicOrderLine> existingLines = order.getLines();
+        if (!order.isCompleted()) releaseReserved(order);
         existingLines.clear(); // безопасно удалить все элементы — Hibernate отследит orphanRemoval
 
         // Добавляем новые строки
@@ -183,6 +180,7 @@ public class MechanicOrderService {
             line.setTitle(dto.getTitle());
             line.setOrder(order);
             existingLines.add(line); // добавляем в существующий список
+            if (!order.isCompleted()) reservedLedger.adjust(order.getStorageType(), line.getMaterialCode(), qty(line.getQty()));
         }
 
         orderRepo.save(order);
@@ -192,6 +190,26 @@ public class MechanicOrderService {
             .stream()
             .map(MechanicOrderLineDTO::getMaterialCode)
             .distinct()
-            .forEach(mat -> visiblePerStorageService.recalculate(order.getStorageType(), mat));
+            .forEach(mat -> recalcQueue.markDirty(order.getStorageType(), mat));
+    }
+
+    private void decrementOrThrow(String storageType, Map<String, Integer> qtyByMaterial) {
+        try {
+            invRepo.decrementAll(storageType, qtyByMaterial);
+        } catch (InsufficientStockException e) {
+            boolean exists = invRepo.findByStorageTypeAndMaterial(storageType, e.getMaterial()).isPresent();
+            throw new BadRequestAlertException(exists ? "error.not_enough" : "error.not_found", "inventory", e.getMaterial());
+        }
+    }
+
+    private void releaseReserved(MechanicOrder order) {
+        if (order.getLines() == null) return;
+        for (MechanicOrderLine line : order.getLines()) {
+            reservedLedger.adjust(order.getStorageType(), line.getMaterialCode(), -qty(line.getQty()));
+        }
+    }
+
+    private static int qty(Integer qty) {
+        return qty != null ? qty : 0;
     }
 }
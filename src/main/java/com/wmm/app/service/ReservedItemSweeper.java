@@ -0,0 +1,53 @@
+package com.wmm.app.service;
+
+import com.wmm.app.repository.ReservedItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Фоновая очистка истёкших резервов корзины одним {@code DELETE} вместо удаления по строке на запросе пользователя.
+ * <p>
+ * Резерв удаляется через минуту после истечения: он уже не учитывается в остатках, а повторный резерв того же материала
+ * в эту минуту переиспользует строку, не сталкиваясь с удалением.
+ */
+@Service
+public class ReservedItemSweeper {
+
+    public static final String SWEPT_METER_NAME = "cart.reservations.swept";
+    public static final String SWEEP_METER_NAME = "cart.reservations.sweep";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReservedItemSweeper.class);
+
+    private static final Duration GRACE = Duration.ofMinutes(1);
+
+    private final ReservedItemRepository reservedItemRepository;
+    private final Counter sweptCounter;
+    private final Timer sweepTimer;
+
+    public ReservedItemSweeper(ReservedItemRepository reservedItemRepository, MeterRegistry registry) {
+        this.reservedItemRepository = reservedItemRepository;
+        this.sweptCounter = Counter.builder(SWEPT_METER_NAME)
+            .baseUnit("reservations")
+            .description("Expired cart reservations deleted by the sweeper.")
+            .register(registry);
+        this.sweepTimer = Timer.builder(SWEEP_METER_NAME).description("Duration of expired cart reservation sweeps.").register(registry);
+    }
+
+    @Scheduled(fixedDelay = 30, initialDelay = 30, timeUnit = TimeUnit.SECONDS)
+    @Transactional
+    public int sweep() {
+        int deleted = sweepTimer.record(() -> reservedItemRepository.deleteExpiredBefore(Instant.now().minus(GRACE)));
+        sweptCounter.increment(deleted);
+        if (deleted > 0) LOG.debug("Swept {} expired cart reservations", deleted);
+        return deleted;
+    }
+}
@@ -0,0 +1,177 @@
+package com.wmm.app.service;
+
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Key;
+import com.wmm.app.repository.MechanicOrderLineRepository;
+import com.wmm.app.repository.MechanicOrderLineRepository.OpenQty;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Журнал зарезервированного количества по (склад, материал) для незавершённых заявок механиков.
+ * Заполняется из БД при старте и дальше меняется приращениями после коммита операций с заявками,
+ * поэтому пересчёт видимого остатка не читает строки заявок.
+ * <p>
+ * Изменения, сделанные внутри транзакции, до коммита видны только этой же транзакции (пересчёт видимого
+ * остатка в ней учитывает их), а в общий журнал попадают в {@code afterCommit}; при откате отбрасываются.
+ * Расхождения с БД (удаление старых заявок, правки в обход сервиса) устраняет периодическая сверка
+ * {@link #reconcile()}. Заявка, уже закоммиченная, но ещё не применённая в {@code afterCommit}, тоже выглядит
+ * расхождением — поэтому исправляется только расхождение, одинаковое в двух сверках подряд.
+ */
+@Service
+public class ReservedQtyLedger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReservedQtyLedger.class);
+
+    private static final char SEP = '\u0000';
+
+    // поля меняются только внутри compute по ключу, читаются без блокировки
+    private static final class Entry {
+
+        volatile long qty;
+        // номер последнего применённого изменения: сверка не трогает ключи, изменившиеся во время её запроса
+        long lastChange;
+        // расхождение, найденное прошлой сверкой и ещё не подтверждённое
+        long suspectedDrift;
+    }
+
+    private final MechanicOrderLineRepository lineRepo;
+
+    private final Map<String, Entry> reserved = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile boolean seeded;
+
+    public ReservedQtyLedger(MechanicOrderLineRepository lineRepo) {
+        this.lineRepo = lineRepo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        long started = changes.get();
+        reserved.clear();
+        for (OpenQty q : lineRepo.sumOpenQtyGrouped()) {
+            add(key(q.getStorageType(), q.getMaterial()), q.getQty(), false);
+        }
+        seeded = true;
+        LOG.info("Reserved quantity ledger seeded with {} keys", reserved.size());
+        // изменения, пришедшие во время заполнения, могли посчитаться дважды — сверка отметит их сразу,
+        // а исправит следующая
+        if (changes.get() != started) reconcile();
+    }
+
+    /**
+     * Зарезервировано незавершёнными заявками, включая ещё не закоммиченные изменения текущей транзакции.
+     * До заполнения журнала при старте отвечает запросом в БД.
+     */
+    public long reserved(String storageType, String material) {
+        if (!seeded) return lineRepo.sumOpenQty(storageType, material);
+        String key = key(storageType, material);
+        Entry e = reserved.get(key);
+        long qty = e != null ? e.qty : 0;
+        Map<String, Long> pending = pending(false);
+        if (pending != null) qty += pending.getOrDefault(key, 0L);
+        return qty;
+    }
+
+    /**
+     * Изменить резерв на {@code delta}. Внутри транзакции изменение применяется после её коммита.
+     */
+    public void adjust(String storageType, String material, long delta) {
+        if (delta == 0 || storageType == null || material == null) return;
+        String key = key(storageType, material);
+        Map<String, Long> pending = pending(true);
+        if (pending != null) pending.merge(key, delta, Long::sum);
+        else apply(key, delta);
+    }
+
+    /**
+     * Сверка с БД: расхождение, повторившееся с прошлой сверки, исправляется; исправленные ключи возвращаются
+     * для пересчёта видимых остатков. Проверка, исправление и удаление пустого ключа идут одним {@code compute},
+     * поэтому параллельное изменение ключа не теряется.
+     */
+    public List<Key> reconcile() {
+        long started = changes.get();
+        Map<String, Long> db = new HashMap<>();
+        for (OpenQty q : lineRepo.sumOpenQtyGrouped()) {
+            db.put(key(q.getStorageType(), q.getMaterial()), q.getQty());
+        }
+
+        Set<String> keys = new HashSet<>(db.keySet());
+        keys.addAll(reserved.keySet());
+        List<Key> repaired = new ArrayList<>();
+        for (String key : keys) {
+            reserved.compute(key, (k, e) -> {
+                if (e == null) e = new Entry();
+                long drift = db.getOrDefault(k, 0L) - e.qty;
+                if (e.lastChange > started || drift == 0) {
+                    e.suspectedDrift = 0;
+                } else if (drift == e.suspectedDrift) {
+                    e.qty += drift;
+                    e.suspectedDrift = 0;
+                    int sep = k.indexOf(SEP);
+                    repaired.add(new Key(k.substring(0, sep), k.substring(sep + 1)));
+                } else {
+                    e.suspectedDrift = drift;
+                }
+                // ключи с нулевым резервом больше не нужны
+                return e.qty == 0 && e.suspectedDrift == 0 ? null : e;
+            });
+        }
+
+        if (!repaired.isEmpty()) LOG.warn("Reserved quantity ledger drift repaired for {} keys", repaired.size());
+        return repaired;
+    }
+
+    private void apply(String key, long delta) {
+        add(key, delta, true);
+    }
+
+    private void add(String key, long delta, boolean change) {
+        reserved.compute(key, (k, e) -> {
+            if (e == null) e = new Entry();
+            e.qty += delta;
+            if (change) e.lastChange = changes.incrementAndGet();
+            return e;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> pending(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        Map<String, Long> pending = (Map<String, Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null || !create) return pending;
+
+        Map<String, Long> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    created.forEach(ReservedQtyLedger.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReservedQtyLedger.this);
+                }
+            }
+        );
+        return created;
+    }
+
+    private static String key(String storageType, String material) {
+        return storageType + SEP + material;
+    }
+}
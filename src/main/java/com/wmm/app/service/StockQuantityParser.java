@@ -0,0 +1,115 @@
+package com.wmm.app.service;
+
+/**
+ * Разбор количества из ячейки выгрузки без регулярных выражений и промежуточных строк.
+ * <p>
+ * Пробелы, NBSP (U+00A0), узкий NBSP (U+202F), апостроф и любые нецифровые символы пропускаются.
+ * Разделитель дробной части определяется по позиции: если в числе есть и «.», и «,», дробный — последний
+ * из них; если разделитель один и встречается один раз, он считается тысячным только при ровно трёх цифрах
+ * после него. Дробная часть отбрасывается. Минус допускается в начале и в конце (как в выгрузках SAP: {@code 5-}).
+ * Примеры: {@code "1 234"}, {@code "1.234"}, {@code "1,234"}, {@code "1 234,00"}, {@code "1.234,5"} → 1234.
+ * Пустое, нечисловое или не помещающееся в {@code int} значение даёт 0.
+ */
+final class StockQuantityParser {
+
+    private StockQuantityParser() {}
+
+    static int parse(CharSequence s) {
+        if (s == null) return 0;
+        int len = s.length();
+
+        // первый проход: где последний «.»/«,» и сколько их каждого вида
+        int lastDot = -1, lastComma = -1, dots = 0, commas = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch == '.') {
+                dots++;
+                lastDot = i;
+            } else if (ch == ',') {
+                commas++;
+                lastComma = i;
+            }
+        }
+        int decimal = decimalSeparator(s, lastDot, dots, lastComma, commas);
+
+        long value = 0;
+        boolean digits = false, negative = false;
+        int end = decimal >= 0 ? decimal : len;
+        for (int i = 0; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                value = value * 10 + (ch - '0');
+                if (value > Integer.MAX_VALUE) return 0;
+                digits = true;
+            } else if (ch == '-') {
+                negative = true;
+            }
+        }
+        // завершающий минус после дробной части: "1,5-"
+        for (int i = end; i < len && !negative; i++) {
+            if (s.charAt(i) == '-') negative = true;
+        }
+        if (!digits) return 0;
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Сырое значение числовой ячейки XLSX ({@code <v>}): десятичная запись с точкой, возможно с экспонентой.
+     */
+    static int parseRaw(CharSequence raw) {
+        int len = raw.length();
+        if (len == 0) return 0;
+        long value = 0;
+        boolean negative = false;
+        int i = 0;
+        if (raw.charAt(0) == '-') {
+            negative = true;
+            i = 1;
+        }
+        for (; i < len; i++) {
+            char ch = raw.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                value = value * 10 + (ch - '0');
+                if (value > Integer.MAX_VALUE) return 0;
+            } else if (ch == '.') {
+                break;
+            } else {
+                // экспонента и прочая экзотика — редкий случай, отдаём стандартному разбору
+                return parseDouble(raw);
+            }
+        }
+        // после точки допустимы только цифры
+        for (int j = i + 1; j < len; j++) {
+            char ch = raw.charAt(j);
+            if (ch < '0' || ch > '9') return parseDouble(raw);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static int parseDouble(CharSequence raw) {
+        try {
+            double d = Double.parseDouble(raw.toString());
+            return d > Integer.MAX_VALUE || d < Integer.MIN_VALUE ? 0 : (int) d;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int decimalSeparator(CharSequence s, int lastDot, int dots, int lastComma, int commas) {
+        if (dots > 0 && commas > 0) return Math.max(lastDot, lastComma);
+        if (dots == 1 && commas == 0) return groupOfThree(s, lastDot) ? -1 : lastDot;
+        if (commas == 1 && dots == 0) return groupOfThree(s, lastComma) ? -1 : lastComma;
+        // несколько одинаковых разделителей — тысячные
+        return -1;
+    }
+
+    private static boolean groupOfThree(CharSequence s, int sep) {
+        int n = 0;
+        for (int i = sep + 1; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') n++;
+            else if (ch != ' ' && ch != '\u00A0' && ch != '\u202F') break;
+        }
+        return n == 3 && sep > 0;
+    }
+}
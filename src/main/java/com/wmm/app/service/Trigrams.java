@@ -0,0 +1,93 @@
+package com.wmm.app.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Триграммы как в {@code pg_trgm}: строка в нижнем регистре режется на слова из букв и цифр, каждое слово
+ * дополняется двумя пробелами слева и одним справа. Триграмма упакована в {@code long} — по 16 бит на символ.
+ * <p>
+ * {@link #wordSimilarity} считает то же, что {@code word_similarity(query, text)}: лучшее отношение
+ * общих триграмм ко всем среди непрерывных отрезков триграмм текста.
+ */
+final class Trigrams {
+
+    /**
+     * Порог по умолчанию {@code pg_trgm.word_similarity_threshold}.
+     */
+    static final double WORD_SIMILARITY_THRESHOLD = 0.6;
+
+    private static final long[] NONE = new long[0];
+
+    private Trigrams() {}
+
+    /**
+     * Триграммы строки по порядку, с повторами.
+     */
+    static long[] of(String s) {
+        if (s == null || s.isEmpty()) return NONE;
+        String lower = s.toLowerCase(Locale.ROOT);
+        long[] out = new long[lower.length() * 3];
+        int n = 0;
+        int i = 0;
+        while (i < lower.length()) {
+            if (!Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < lower.length() && Character.isLetterOrDigit(lower.charAt(end))) end++;
+            // "  слово " -> "  с", " сл", ..., "во "
+            char a = ' ', b = ' ';
+            for (int k = i; k <= end; k++) {
+                char c = k < end ? lower.charAt(k) : ' ';
+                out[n++] = pack(a, b, c);
+                a = b;
+                b = c;
+            }
+            i = end;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Различные триграммы строки, отсортированные, — форма для запроса.
+     */
+    static long[] distinct(String s) {
+        return Arrays.stream(of(s)).distinct().sorted().toArray();
+    }
+
+    /**
+     * Похожесть запроса на лучший отрезок текста: {@code общие / (триграммы запроса + триграммы отрезка − общие)}.
+     * Отрезок выгодно начинать и заканчивать общей триграммой, поэтому перебираются только такие.
+     *
+     * @param query результат {@link #distinct}
+     * @param text  результат {@link #of}
+     */
+    static double wordSimilarity(long[] query, long[] text) {
+        if (query.length == 0) return 0;
+        double best = 0;
+        for (int from = 0; from < text.length; from++) {
+            if (!contains(query, text[from])) continue;
+            Set<Long> seen = new HashSet<>();
+            int common = 0;
+            for (int to = from; to < text.length; to++) {
+                boolean shared = contains(query, text[to]);
+                if (seen.add(text[to]) && shared) common++;
+                if (shared) best = Math.max(best, (double) common / (query.length + seen.size() - common));
+            }
+            if (best == 1) break;
+        }
+        return best;
+    }
+
+    private static boolean contains(long[] sorted, long trigram) {
+        return Arrays.binarySearch(sorted, trigram) >= 0;
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
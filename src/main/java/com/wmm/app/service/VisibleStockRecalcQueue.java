@@ -0,0 +1,138 @@
+package com.wmm.app.service;
+
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Key;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Очередь пересчёта видимых остатков. Операции с заявками только помечают (склад, материал) как изменённые;
+ * ключи транзакции копятся без повторов и после её коммита уходят в общую очередь, а та с небольшой задержкой
+ * сбрасывается одним выражением {@link InventoryVisiblePerStorageService#rebuildVisibleStock(java.util.Collection)}.
+ * Пачка одновременных заявок на одну ходовую позицию даёт один пересчёт, а не десятки.
+ */
+@Service
+public class VisibleStockRecalcQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VisibleStockRecalcQueue.class);
+
+    // окно, в которое собираются изменения перед сбросом
+    private static final long DEBOUNCE_MS = 250;
+    // после неудачного пересчёта пауза удваивается до этого предела
+    static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final InventoryVisiblePerStorageService visiblePerStorageService;
+
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final TaskScheduler flusher;
+    // неудачных пересчётов подряд; меняется только сбросом
+    private int failures;
+
+    public VisibleStockRecalcQueue(
+        InventoryVisiblePerStorageService visiblePerStorageService,
+        @Qualifier("visibleStockRecalcScheduler") TaskScheduler flusher
+    ) {
+        this.visiblePerStorageService = visiblePerStorageService;
+        this.flusher = flusher;
+    }
+
+    /**
+     * Пометить ключ для пересчёта. Внутри транзакции ключ попадёт в очередь только после коммита.
+     */
+    public void markDirty(String storageType, String material) {
+        if (storageType == null || material == null) return;
+        Key key = new Key(storageType, material);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(List.of(key));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Key> pending = (Set<Key>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Key> created = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        enqueue(created);
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(VisibleStockRecalcQueue.this);
+                    }
+                }
+            );
+            pending = created;
+        }
+        pending.add(key);
+    }
+
+    private void enqueue(Collection<Key> keys) {
+        dirty.addAll(keys);
+        scheduleFlush(DEBOUNCE_MS);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (!flushScheduled.compareAndSet(false, true)) return;
+        try {
+            flusher.schedule(this::flush, Instant.now().plusMillis(delayMs));
+        } catch (RejectedExecutionException e) {
+            // приложение останавливается: оставшееся сбросит shutdown()
+            flushScheduled.set(false);
+        }
+    }
+
+    /**
+     * Сбросить накопленные ключи одним пересчётом. Неудачная пачка возвращается в очередь и повторяется
+     * с удваивающейся паузой, пока сброс не пройдёт.
+     */
+    public void flush() {
+        List<Key> batch = new ArrayList<>(dirty);
+        dirty.removeAll(batch);
+        long delay = DEBOUNCE_MS;
+        if (!batch.isEmpty()) {
+            try {
+                visiblePerStorageService.rebuildVisibleStock(batch);
+                failures = 0;
+            } catch (RuntimeException e) {
+                dirty.addAll(batch);
+                delay = retryDelay(++failures);
+                LOG.error("Visible stock recalculation failed for {} keys, retrying in {} ms", batch.size(), delay, e);
+            }
+        }
+        // ключи, пришедшие во время пересчёта, и неудачная пачка уходят следующим сбросом
+        flushScheduled.set(false);
+        if (!dirty.isEmpty()) scheduleFlush(delay);
+    }
+
+    static long retryDelay(int failures) {
+        return Math.min(MAX_RETRY_DELAY_MS, DEBOUNCE_MS << Math.min(failures, 16));
+    }
+
+    /**
+     * Последний сброс при остановке; планировщик останавливает Spring уже после этого бина.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
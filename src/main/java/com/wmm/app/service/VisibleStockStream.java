@@ -0,0 +1,204 @@
+package com.wmm.app.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Поток изменений видимых остатков по складам (Server-Sent Events) вместо опроса витрины и корзины.
+ * <p>
+ * Событие {@value #STOCK_EVENT} несёт JSON-объект {@code {"материал": видимый остаток}} — только изменившиеся позиции.
+ * Событие {@value #RESYNC_EVENT} просит клиента перечитать витрину целиком: после пересчёта всего склада
+ * или если клиент не успевал читать поток.
+ * <p>
+ * Изменения публикуются после коммита и складываются в буфер подписчика: повторное изменение материала
+ * перезаписывает ещё не отправленное значение. Буфер ограничен {@value #MAX_PENDING} материалами; при переполнении
+ * он очищается и клиенту уходит resync — медленный клиент не копит память и не тормозит остальных.
+ * Отправкой занимается ограниченный пул {@code visibleStockStreamExecutor}, у каждого подписчика в работе
+ * не больше одной отправки.
+ */
+@Service
+public class VisibleStockStream {
+
+    public static final String STOCK_EVENT = "stock";
+    public static final String RESYNC_EVENT = "resync";
+
+    private static final Logger LOG = LoggerFactory.getLogger(VisibleStockStream.class);
+
+    static final int MAX_PENDING = 500;
+
+    // соединение закрывается раньше типичных таймаутов прокси; EventSource переподключится сам
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Executor sender;
+
+    public VisibleStockStream(@Qualifier("visibleStockStreamExecutor") Executor sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Подписка на изменения склада.
+     */
+    public SseEmitter subscribe(String storageType) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(storageType, emitter);
+        subscribers.computeIfAbsent(storageType, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Новые видимые остатки материалов склада.
+     */
+    public void publish(String storageType, Map<String, Integer> changes) {
+        if (storageType == null || changes.isEmpty()) return;
+        AfterCommit.run(() -> forEachSubscriber(storageType, s -> s.offer(changes)));
+    }
+
+    /**
+     * Изменился весь склад — клиенты перечитывают витрину.
+     */
+    public void resync(String storageType) {
+        if (storageType == null) return;
+        AfterCommit.run(() -> forEachSubscriber(storageType, Subscriber::requestResync));
+    }
+
+    /**
+     * Комментарий раз в 20 секунд держит соединение через прокси и выявляет отключившихся клиентов.
+     */
+    @Scheduled(fixedRate = 20, initialDelay = 20, timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::requestHeartbeat));
+    }
+
+    int subscriberCount(String storageType) {
+        Set<Subscriber> set = subscribers.get(storageType);
+        return set == null ? 0 : set.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private void forEachSubscriber(String storageType, Consumer<Subscriber> action) {
+        Set<Subscriber> set = subscribers.get(storageType);
+        if (set != null) set.forEach(action);
+    }
+
+    private void remove(Subscriber subscriber) {
+        Set<Subscriber> set = subscribers.get(subscriber.storageType);
+        if (set != null) set.remove(subscriber);
+    }
+
+    private final class Subscriber {
+
+        private final String storageType;
+        private final SseEmitter emitter;
+
+        // всё ниже — под монитором подписчика
+        private Map<String, Integer> pending = new LinkedHashMap<>();
+        private boolean resync;
+        private boolean heartbeat;
+        private boolean sending;
+
+        Subscriber(String storageType, SseEmitter emitter) {
+            this.storageType = storageType;
+            this.emitter = emitter;
+        }
+
+        void offer(Map<String, Integer> changes) {
+            synchronized (this) {
+                if (!resync) {
+                    pending.putAll(changes);
+                    if (pending.size() > MAX_PENDING) {
+                        pending.clear();
+                        resync = true;
+                    }
+                }
+            }
+            schedule();
+        }
+
+        void requestResync() {
+            synchronized (this) {
+                pending.clear();
+                resync = true;
+            }
+            schedule();
+        }
+
+        void requestHeartbeat() {
+            synchronized (this) {
+                heartbeat = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (sending) return;
+                sending = true;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // очередь пула полна или приложение останавливается: накопленное уйдёт со следующим изменением
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Map<String, Integer> batch;
+                boolean sendResync;
+                boolean sendHeartbeat;
+                synchronized (this) {
+                    if (pending.isEmpty() && !resync && !heartbeat) {
+                        sending = false;
+                        return;
+                    }
+                    batch = pending;
+                    sendResync = resync;
+                    sendHeartbeat = heartbeat;
+                    pending = new LinkedHashMap<>();
+                    resync = false;
+                    heartbeat = false;
+                }
+                try {
+                    if (sendResync) emitter.send(SseEmitter.event().name(RESYNC_EVENT).data(""));
+                    else if (!batch.isEmpty()) emitter.send(SseEmitter.event().name(STOCK_EVENT).data(batch, MediaType.APPLICATION_JSON));
+                    else if (sendHeartbeat) emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    LOG.debug("Visible stock subscriber for {} disconnected: {}", storageType, e.getMessage());
+                    remove(this);
+                    emitter.completeWithError(e);
+                    synchronized (this) {
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.wmm.app.service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Состояние фонового импорта остатков — то, что опрашивает UI склада.
+ */
+public record InventoryImportJobDTO(
+    String jobId,
+    String originalFilename,
+    String phase,
+    int rowsParsed,
+    int totalKeys,
+    int rowsUpserted,
+    List<String> errors,
+    InventoryImportReportDTO report,
+    Instant startedAt,
+    Instant finishedAt
+) {}
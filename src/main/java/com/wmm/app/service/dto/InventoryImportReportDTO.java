@@ -7,6 +7,10 @@ public class InventoryImportReportDTO {
     public int addedCount;
     public int updatedCount;
     public String[] storageTypesFound;
+    // файл побайтно совпал с предыдущей загрузкой — импорт пропущен
+    public boolean unchangedFile;
+    // склады, содержимое которых не изменилось с прошлой загрузки
+    public String[] unchangedStorageTypes = new String[0];
 
     public InventoryImportReportDTO(String originalFilename, int totalRows, int addedCount, int updatedCount, String[] storageTypesFound) {
         this.originalFilename = originalFilename;
@@ -1,14 +1,15 @@
 package com.wmm.app.web.rest;
 
 import com.wmm.app.domain.ReservedItem;
-import com.wmm.app.repository.ReservedItemRepository;
+import com.wmm.app.security.AuthoritiesConstants;
 import com.wmm.app.service.CartReservationService;
+import com.wmm.app.web.rest.errors.BadRequestAlertException;
 import jakarta.validation.Valid;
 import java.time.Instant;
 import java.util.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -16,15 +17,15 @@ import org.springframework.web.bind.annotation.*;
  */
 @RestController
 @RequestMapping("/api/cart")
-@Transactional
 public class CartResource {
 
+    // логинов в одном пакетном heartbeat: с запасом на все сессии киоска
+    static final int MAX_HEARTBEAT_BATCH = 200;
+
     private final CartReservationService cartReservationService;
-    private final ReservedItemRepository reservedItemRepository;
 
-    public CartResource(CartReservationService cartReservationService, ReservedItemRepository reservedItemRepository) {
+    public CartResource(CartReservationService cartReservationService) {
         this.cartReservationService = cartReservationService;
-        this.reservedItemRepository = reservedItemRepository;
     }
 
     /**
@@ -62,7 +63,7 @@ public class CartResource {
     }
 
     /**
-     * POST /api/cart/heartbeat : Extend reservations by +1 minute (test mode).
+     * POST /api/cart/heartbeat : Extend reservations by the configured reservation TTL.
      */
     @PostMapping("/heartbeat")
     public ResponseEntity<Void> heartbeat(Authentication authentication) {
@@ -72,23 +73,52 @@ public class CartResource {
     }
 
     /**
-     * GET /api/cart/reserved-counts : Returns total reserved quantities for given materials (excluding current user).
+     * POST /api/cart/heartbeat/batch : Extend reservations of several users at once (shared warehouse kiosk).
+     * Only active mechanics are extended, other logins are skipped. The body must list 1 to
+     * {@value #MAX_HEARTBEAT_BATCH} logins. Returns the number of extended reservations per mechanic.
+     */
+    @PostMapping("/heartbeat/batch")
+    @PreAuthorize(
+        "hasAnyAuthority('" +
+        AuthoritiesConstants.ADMIN +
+        "','" +
+        AuthoritiesConstants.WAREHOUSEMAN +
+        "','" +
+        AuthoritiesConstants.SENIOR_WAREHOUSEMAN +
+        "')"
+    )
+    public ResponseEntity<Map<String, Integer>> heartbeatBatch(@RequestBody List<String> users) {
+        Set<String> logins = new LinkedHashSet<>();
+        if (users != null) {
+            for (String user : users) {
+                if (user != null && !user.isBlank()) logins.add(user.trim());
+            }
+        }
+        if (logins.isEmpty()) {
+            throw new BadRequestAlertException("Empty user list", "cart", "heartbeatempty");
+        }
+        if (logins.size() > MAX_HEARTBEAT_BATCH) {
+            throw new BadRequestAlertException("At most " + MAX_HEARTBEAT_BATCH + " users per heartbeat", "cart", "heartbeattoolarge");
+        }
+        return ResponseEntity.ok(cartReservationService.extendReservations(logins));
+    }
+
+    /**
+     * GET /api/cart/reserved-counts : Returns total reserved quantities for given materials (excluding current user),
+     * optionally limited to one storage type.
      */
     @GetMapping("/reserved-counts")
     public ResponseEntity<Map<String, Integer>> getReservedCounts(
         @RequestParam("materials") String materials,
+        @RequestParam(value = "storageType", required = false) String storageType,
         Authentication authentication
     ) {
-        String currentUser = authentication.getName();
-        Instant now = Instant.now();
-
-        Map<String, Integer> result = new HashMap<>();
+        Set<String> codes = new LinkedHashSet<>();
         for (String materialCode : materials.split(",")) {
-            int reservedCount = reservedItemRepository.sumActiveByMaterialExcludingUser(materialCode, now, currentUser);
-            result.put(materialCode, reservedCount);
+            if (!materialCode.isBlank()) codes.add(materialCode.trim());
         }
-
-        return ResponseEntity.ok(result);
+        String scope = storageType == null || storageType.isBlank() ? null : storageType;
+        return ResponseEntity.ok(cartReservationService.getReservedCounts(codes, scope, authentication.getName()));
     }
 
     /**
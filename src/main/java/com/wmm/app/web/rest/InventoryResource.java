@@ -5,36 +5,49 @@ import com.wmm.app.domain.InventoryUpload;
 import com.wmm.app.repository.InventoryCurrentRepository;
 import com.wmm.app.repository.InventoryUploadRepository;
 import com.wmm.app.security.AuthoritiesConstants;
+import com.wmm.app.security.SecurityUtils;
+import com.wmm.app.service.CatalogVersions;
+import com.wmm.app.service.InventoryImportJobService;
 import com.wmm.app.service.InventoryImportService;
+import com.wmm.app.service.dto.InventoryImportJobDTO;
 import com.wmm.app.service.dto.InventoryImportReportDTO;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.PaginationUtil;
+import tech.jhipster.web.util.ResponseUtil;
 
 @RestController
 @RequestMapping("/api/inventory")
 public class InventoryResource {
 
     private final InventoryImportService importService;
+    private final InventoryImportJobService importJobService;
     private final InventoryUploadRepository uploadRepo;
     private final InventoryCurrentRepository currentRepo;
+    private final CatalogVersions catalogVersions;
 
     public InventoryResource(
         InventoryImportService importService,
+        InventoryImportJobService importJobService,
         InventoryUploadRepository uploadRepo,
-        InventoryCurrentRepository currentRepo
+        InventoryCurrentRepository currentRepo,
+        CatalogVersions catalogVersions
     ) {
         this.importService = importService;
+        this.importJobService = importJobService;
         this.uploadRepo = uploadRepo;
         this.currentRepo = currentRepo;
+        this.catalogVersions = catalogVersions;
     }
 
     @PostMapping("/import")
@@ -46,15 +59,39 @@ public class InventoryResource {
     ) throws Exception {
         String username = auth != null ? auth.getName() : "unknown";
 
-        // если выбрана галочка "стереть всё"
-        if (wipe) {
-            currentRepo.deleteAll();
-        }
-
-        InventoryImportReportDTO report = importService.importFile(file, username);
+        // галочка "стереть всё" обрабатывается внутри импорта
+        InventoryImportReportDTO report = importService.importFile(file, wipe, username);
         return ResponseEntity.ok(report);
     }
 
+    // фоновый импорт: сразу отдаём id задачи, прогресс — через GET /import-jobs/{jobId}
+    @PostMapping("/import-jobs")
+    @PreAuthorize("hasAnyAuthority('" + AuthoritiesConstants.WAREHOUSEMAN + "','" + AuthoritiesConstants.SENIOR_WAREHOUSEMAN + "')")
+    public ResponseEntity<InventoryImportJobDTO> startImportJob(
+        @RequestPart("file") MultipartFile file,
+        @RequestParam(value = "wipe", defaultValue = "false") boolean wipe,
+        Authentication auth
+    ) throws Exception {
+        String username = auth != null ? auth.getName() : "unknown";
+        return ResponseEntity.accepted().body(importJobService.submit(file, wipe, username));
+    }
+
+    // статус видят автор загрузки и администратор
+    @GetMapping("/import-jobs/{jobId}")
+    @PreAuthorize(
+        "hasAnyAuthority('" +
+        AuthoritiesConstants.WAREHOUSEMAN +
+        "','" +
+        AuthoritiesConstants.SENIOR_WAREHOUSEMAN +
+        "','" +
+        AuthoritiesConstants.ADMIN +
+        "')"
+    )
+    public ResponseEntity<InventoryImportJobDTO> getImportJob(@PathVariable String jobId, Authentication auth) {
+        boolean admin = SecurityUtils.hasCurrentUserThisAuthority(AuthoritiesConstants.ADMIN);
+        return ResponseUtil.wrapOrNotFound(importJobService.find(jobId, auth.getName(), admin));
+    }
+
     @GetMapping("/uploads")
     @PreAuthorize("hasAnyAuthority('" + AuthoritiesConstants.WAREHOUSEMAN + "','" + AuthoritiesConstants.SENIOR_WAREHOUSEMAN + "')")
     public ResponseEntity<List<InventoryUpload>> listUploads(@org.springdoc.core.annotations.ParameterObject Pageable pageable) {
@@ -82,8 +119,14 @@ public class InventoryResource {
         AuthoritiesConstants.ADMIN +
         "')"
     )
-    public ResponseEntity<List<String>> storageTypes() {
-        return ResponseEntity.ok(currentRepo.findDistinctStorageTypes());
+    public ResponseEntity<List<String>> storageTypes(WebRequest webRequest) {
+        // список складов меняется только импортом — 304 без запроса к БД
+        String etag = catalogVersions.globalTag();
+        if (webRequest.checkNotModified(etag)) return null;
+        return ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .body(currentRepo.findDistinctStorageTypes());
     }
 
     //таблица остатков с фильтрами, сортировкой, пагинацией
@@ -95,24 +138,8 @@ public class InventoryResource {
         @RequestParam(required = false) String material,
         @RequestParam(required = false) String name
     ) {
-        Page<InventoryCurrent> page;
-        String m = material == null ? "" : material;
-        String d = name == null ? "" : name;
-
-        if (!m.isBlank() && !d.isBlank()) {
-            page = currentRepo.findByStorageTypeAndMaterialContainingIgnoreCaseAndMaterialDescriptionContainingIgnoreCase(
-                pageable,
-                storageType,
-                m,
-                d
-            );
-        } else if (!m.isBlank()) {
-            page = currentRepo.findByStorageTypeAndMaterialContainingIgnoreCase(pageable, storageType, m);
-        } else if (!d.isBlank()) {
-            page = currentRepo.findByStorageTypeAndMaterialDescriptionContainingIgnoreCase(pageable, storageType, d);
-        } else {
-            page = currentRepo.findAllByStorageType(pageable, storageType);
-        }
+        // поиск подстрокой по коду и по триграммам описания; sort=relevance — сначала самые похожие
+        Page<InventoryCurrent> page = currentRepo.search(storageType, material, name, pageable);
 
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
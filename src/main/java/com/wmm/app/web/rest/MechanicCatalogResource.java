@@ -1,13 +1,17 @@
 package com.wmm.app.web.rest;
 
 import com.wmm.app.security.AuthoritiesConstants;
+import com.wmm.app.service.CatalogVersions;
 import com.wmm.app.service.MechanicCatalogService;
+import com.wmm.app.service.VisibleStockStream;
 import com.wmm.app.service.dto.MechanicTileViewDTO;
 import java.util.List;
 import org.springframework.data.domain.*;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.PaginationUtil;
 
@@ -15,10 +19,19 @@ import tech.jhipster.web.util.PaginationUtil;
 @RequestMapping("/api/mechanic/catalog")
 public class MechanicCatalogResource {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // ответ можно хранить, но перед использованием сверять ETag
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final MechanicCatalogService service;
+    private final CatalogVersions catalogVersions;
+    private final VisibleStockStream stockStream;
 
-    public MechanicCatalogResource(MechanicCatalogService service) {
+    public MechanicCatalogResource(MechanicCatalogService service, CatalogVersions catalogVersions, VisibleStockStream stockStream) {
         this.service = service;
+        this.catalogVersions = catalogVersions;
+        this.stockStream = stockStream;
     }
 
     @GetMapping("/tiles")
@@ -41,11 +54,22 @@ public class MechanicCatalogResource {
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
         @RequestParam String storageType,
         @RequestParam(required = false) String q,
-        @RequestParam(required = false) String category
+        @RequestParam(required = false) String category,
+        @RequestParam(required = false) String after,
+        WebRequest webRequest
     ) {
-        Page<MechanicTileViewDTO> page = service.list(storageType, q, category, pageable);
+        // ETag берём до чтения данных: изменение между ними даст лишний запрос, но не устаревший кэш
+        String etag = catalogVersions.catalogTag(storageType);
+        if (webRequest.checkNotModified(etag)) return null;
+
+        Page<MechanicTileViewDTO> page = service.list(storageType, q, category, after, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        // курсор следующей страницы: передать в after, чтобы листать без OFFSET; результаты поиска листаются по номеру
+        List<MechanicTileViewDTO> content = page.getContent();
+        if ((q == null || q.isBlank()) && content.size() == pageable.getPageSize()) {
+            headers.add(NEXT_CURSOR_HEADER, MechanicCatalogService.cursorOf(content.get(content.size() - 1)));
+        }
+        return ResponseEntity.ok().headers(headers).eTag(etag).cacheControl(REVALIDATE).body(page.getContent());
     }
 
     @GetMapping("/categories")
@@ -64,7 +88,33 @@ public class MechanicCatalogResource {
         AuthoritiesConstants.SENIOR_MANAGER +
         "')"
     )
-    public ResponseEntity<List<String>> categories(@RequestParam String storageType) {
-        return ResponseEntity.ok(service.categoriesForWarehouse(storageType));
+    public ResponseEntity<List<String>> categories(@RequestParam String storageType, WebRequest webRequest) {
+        String etag = catalogVersions.globalTag();
+        if (webRequest.checkNotModified(etag)) return null;
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(service.categoriesForWarehouse(storageType));
+    }
+
+    /**
+     * Поток изменений видимых остатков склада: события {@code stock} с {@code {"материал": остаток}}
+     * и {@code resync}, после которого витрину нужно перечитать.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize(
+        "hasAnyAuthority('" +
+        AuthoritiesConstants.MECHANIC +
+        "','" +
+        AuthoritiesConstants.SENIOR_MECHANIC +
+        "','" +
+        AuthoritiesConstants.WAREHOUSEMAN +
+        "','" +
+        AuthoritiesConstants.SENIOR_WAREHOUSEMAN +
+        "','" +
+        AuthoritiesConstants.MANAGER +
+        "','" +
+        AuthoritiesConstants.SENIOR_MANAGER +
+        "')"
+    )
+    public SseEmitter stream(@RequestParam String storageType) {
+        return stockStream.subscribe(storageType);
     }
 }
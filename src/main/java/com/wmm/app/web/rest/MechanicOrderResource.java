@@ -4,11 +4,12 @@ import com.wmm.app.domain.InventoryCurrent;
 import com.wmm.app.domain.MechanicOrder;
 import com.wmm.app.domain.MechanicOrderLine;
 import com.wmm.app.repository.InventoryCurrentRepository;
-import com.wmm.app.repository.InventoryVisiblePerStorageRepository;
 import com.wmm.app.repository.MechanicOrderRepository;
 import com.wmm.app.repository.MechanicTileRepository;
-import com.wmm.app.service.InventoryVisiblePerStorageService;
+import com.wmm.app.service.CheckoutIdempotencyService;
 import com.wmm.app.service.MechanicOrderService;
+import com.wmm.app.service.ReservedQtyLedger;
+import com.wmm.app.service.VisibleStockRecalcQueue;
 import com.wmm.app.service.TelegramBotService;
 import com.wmm.app.service.dto.MechanicOrderLineDTO;
 import com.wmm.app.web.rest.errors.BadRequestAlertException;
@@ -54,23 +55,26 @@ public class MechanicOrderResource {
     private final MechanicOrderRepository orderRepo;
     private final MechanicOrderService mechanicOrderService;
     private final MechanicTileRepository tileRepo;
-    private final InventoryVisiblePerStorageService visiblePerStorageService;
-    private final InventoryVisiblePerStorageRepository visiblePerStorageRepo;
+    private final ReservedQtyLedger reservedLedger;
+    private final VisibleStockRecalcQueue recalcQueue;
+    private final CheckoutIdempotencyService idempotencyService;
 
     public MechanicOrderResource(
         InventoryCurrentRepository invRepo,
         MechanicOrderRepository orderRepo,
         MechanicOrderService mechanicOrderService,
         MechanicTileRepository tileRepo,
-        InventoryVisiblePerStorageService visiblePerStorageService,
-        InventoryVisiblePerStorageRepository visiblePerStorageRepo
+        ReservedQtyLedger reservedLedger,
+        VisibleStockRecalcQueue recalcQueue,
+        CheckoutIdempotencyService idempotencyService
     ) {
         this.invRepo = invRepo;
         this.orderRepo = orderRepo;
         this.mechanicOrderService = mechanicOrderService;
         this.tileRepo = tileRepo;
-        this.visiblePerStorageService = visiblePerStorageService;
-        this.visiblePerStorageRepo = visiblePerStorageRepo;
+        this.reservedLedger = reservedLedger;
+        this.recalcQueue = recalcQueue;
+        this.idempotencyService = idempotencyService;
     }
 
     private String currentLogin() {
@@ -131,7 +135,20 @@ public class MechanicOrderResource {
 
     @PostMapping("/checkout")
     @PreAuthorize("hasAnyAuthority('ROLE_MECHANIC','ROLE_SENIOR_MECHANIC')")
-    public ResponseEntity<CheckoutResponse> checkout(@RequestBody CheckoutRequest req) {
+    public ResponseEntity<CheckoutResponse> checkout(
+        @RequestBody CheckoutRequest req,
+        @RequestHeader(name = CheckoutIdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) return ResponseEntity.ok(placeOrder(req));
+
+        // повтор того же оформления (двойное нажатие, переотправка при плохой сети) получает первый ответ;
+        // ключ, заявка и ответ фиксируются одной транзакцией
+        String login = currentLogin();
+        CheckoutResponse response = idempotencyService.execute(login, idempotencyKey, req, CheckoutResponse.class, () -> placeOrder(req));
+        return ResponseEntity.ok(response);
+    }
+
+    private CheckoutResponse placeOrder(CheckoutRequest req) {
         if (req == null || req.items() == null || req.items().isEmpty()) {
             throw new BadRequestAlertException("Пустой заказ", "mechanicOrder", "empty");
         }
@@ -192,12 +209,13 @@ public class MechanicOrderResource {
 
         entity.setLines(entityLines);
         MechanicOrder saved = orderRepo.save(entity);
+        requested.forEach((material, qty) -> reservedLedger.adjust(req.storageType(), material, qty));
 
         for (var e : requested.entrySet()) {
             String material = e.getKey();
 
-            // пересчитываем видимый остаток
-            visiblePerStorageService.recalculate(req.storageType(), material);
+            // видимый остаток пересчитается очередью; для уведомления считаем его сразу
+            recalcQueue.markDirty(req.storageType(), material);
 
             // уведомление по фактическому остатку
             invRepo
@@ -209,34 +227,27 @@ public class MechanicOrderResource {
                         // 🔴 товар закончился — уведомление на основе InventoryCurrent
                         telegramBotService.notifyOutOfStock(ic.getMaterial(), productTitle, req.storageType());
                     } else {
-                        // 🟡 проверка по InventoryVisible — доступный остаток
+                        // 🟡 проверка по видимому (доступному) остатку
                         tileRepo
                             .findByMaterialCodeAndActiveTrue(material)
                             .ifPresent(tile -> {
                                 int minAlert = Optional.ofNullable(tile.getMinStockAlert()).orElse(0);
                                 if (minAlert > 0) {
-                                    // достаём видимый остаток
-                                    visiblePerStorageRepo
-                                        .findByStorageTypeAndMaterial(req.storageType(), material)
-                                        .ifPresent(visible -> {
-                                            int visibleStock = visible.getVisibleStock();
-                                            if (visibleStock > 0 && visibleStock <= minAlert) {
-                                                telegramBotService.notifyLowStock(
-                                                    material,
-                                                    productTitle,
-                                                    visibleStock,
-                                                    minAlert,
-                                                    req.storageType()
-                                                );
-                                            }
-                                        });
+                                    // видимый остаток = фактический минус резерв открытых заявок
+                                    int visibleStock = (int) Math.max(
+                                        0,
+                                        ic.getAvailableStock() - reservedLedger.reserved(req.storageType(), material)
+                                    );
+                                    if (visibleStock > 0 && visibleStock <= minAlert) {
+                                        telegramBotService.notifyLowStock(material, productTitle, visibleStock, minAlert, req.storageType());
+                                    }
                                 }
                             });
                     }
                 });
         }
 
-        return ResponseEntity.ok(new CheckoutResponse(saved.getId(), req.orderName(), req.storageType(), login, now, lines));
+        return new CheckoutResponse(saved.getId(), req.orderName(), req.storageType(), login, now, lines);
     }
 
     @PutMapping("/{orderId}/lines")
@@ -2,6 +2,7 @@ package com.wmm.app.web.rest;
 
 import com.wmm.app.domain.MechanicTile;
 import com.wmm.app.repository.MechanicTileRepository;
+import com.wmm.app.service.MechanicCatalogSnapshot;
 import com.wmm.app.web.rest.errors.BadRequestAlertException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -38,8 +39,11 @@ public class MechanicTileResource {
 
     private final MechanicTileRepository mechanicTileRepository;
 
-    public MechanicTileResource(MechanicTileRepository mechanicTileRepository) {
+    private final MechanicCatalogSnapshot catalogSnapshot;
+
+    public MechanicTileResource(MechanicTileRepository mechanicTileRepository, MechanicCatalogSnapshot catalogSnapshot) {
         this.mechanicTileRepository = mechanicTileRepository;
+        this.catalogSnapshot = catalogSnapshot;
     }
 
     /**
@@ -56,6 +60,7 @@ public class MechanicTileResource {
             throw new BadRequestAlertException("A new mechanicTile cannot already have an ID", ENTITY_NAME, "idexists");
         }
         mechanicTile = mechanicTileRepository.save(mechanicTile);
+        catalogSnapshot.tileChanged(mechanicTile.getId());
         return ResponseEntity.created(new URI("/api/mechanic-tiles/" + mechanicTile.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, mechanicTile.getId().toString()))
             .body(mechanicTile);
@@ -89,6 +94,7 @@ public class MechanicTileResource {
         }
 
         mechanicTile = mechanicTileRepository.save(mechanicTile);
+        catalogSnapshot.tileChanged(mechanicTile.getId());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, mechanicTile.getId().toString()))
             .body(mechanicTile);
@@ -144,6 +150,7 @@ public class MechanicTileResource {
                 return existingMechanicTile;
             })
             .map(mechanicTileRepository::save);
+        catalogSnapshot.tileChanged(id);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -192,6 +199,7 @@ public class MechanicTileResource {
     public ResponseEntity<Void> deleteMechanicTile(@PathVariable("id") Long id) {
         LOG.debug("REST request to delete MechanicTile : {}", id);
         mechanicTileRepository.deleteById(id);
+        catalogSnapshot.tileChanged(id);
         return ResponseEntity.noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
             .build();
@@ -2,6 +2,7 @@ package com.wmm.app.web.rest;
 
 import com.wmm.app.domain.ProductCategory;
 import com.wmm.app.repository.ProductCategoryRepository;
+import com.wmm.app.service.MechanicCatalogSnapshot;
 import com.wmm.app.web.rest.errors.BadRequestAlertException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -37,8 +38,11 @@ public class ProductCategoryResource {
 
     private final ProductCategoryRepository productCategoryRepository;
 
-    public ProductCategoryResource(ProductCategoryRepository productCategoryRepository) {
+    private final MechanicCatalogSnapshot catalogSnapshot;
+
+    public ProductCategoryResource(ProductCategoryRepository productCategoryRepository, MechanicCatalogSnapshot catalogSnapshot) {
         this.productCategoryRepository = productCategoryRepository;
+        this.catalogSnapshot = catalogSnapshot;
     }
 
     /**
@@ -91,6 +95,7 @@ public class ProductCategoryResource {
         }
 
         productCategory = productCategoryRepository.save(productCategory);
+        catalogSnapshot.categoryChanged(productCategory.getId());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, productCategory.getId().toString()))
             .body(productCategory);
@@ -138,6 +143,7 @@ public class ProductCategoryResource {
                 return existingProductCategory;
             })
             .map(productCategoryRepository::save);
+        catalogSnapshot.categoryChanged(id);
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -182,6 +188,7 @@ public class ProductCategoryResource {
     public ResponseEntity<Void> deleteProductCategory(@PathVariable("id") Long id) {
         LOG.debug("REST request to delete ProductCategory : {}", id);
         productCategoryRepository.deleteById(id);
+        catalogSnapshot.categoryChanged(id);
         return ResponseEntity.noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
             .build();
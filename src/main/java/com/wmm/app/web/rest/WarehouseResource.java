@@ -2,6 +2,7 @@ package com.wmm.app.web.rest;
 
 import com.wmm.app.domain.Warehouse;
 import com.wmm.app.repository.WarehouseRepository;
+import com.wmm.app.service.MechanicCatalogSnapshot;
 import com.wmm.app.web.rest.errors.BadRequestAlertException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -37,8 +38,11 @@ public class WarehouseResource {
 
     private final WarehouseRepository warehouseRepository;
 
-    public WarehouseResource(WarehouseRepository warehouseRepository) {
+    private final MechanicCatalogSnapshot catalogSnapshot;
+
+    public WarehouseResource(WarehouseRepository warehouseRepository, MechanicCatalogSnapshot catalogSnapshot) {
         this.warehouseRepository = warehouseRepository;
+        this.catalogSnapshot = catalogSnapshot;
     }
 
     /**
@@ -90,6 +94,7 @@ public class WarehouseResource {
         }
 
         warehouse = warehouseRepository.save(warehouse);
+        catalogSnapshot.invalidate();
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, warehouse.getId().toString()))
             .body(warehouse);
@@ -141,6 +146,7 @@ public class WarehouseResource {
                 return existingWarehouse;
             })
             .map(warehouseRepository::save);
+        catalogSnapshot.invalidate();
 
         return ResponseUtil.wrapOrNotFound(
             result,
@@ -185,6 +191,7 @@ public class WarehouseResource {
     public ResponseEntity<Void> deleteWarehouse(@PathVariable("id") Long id) {
         LOG.debug("REST request to delete Warehouse : {}", id);
         warehouseRepository.deleteById(id);
+        catalogSnapshot.invalidate();
         return ResponseEntity.noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
             .build();
@@ -1,8 +1,19 @@
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import axios from 'axios';
 import { Button, Col, Row, Table, Spinner } from 'reactstrap';
 import { useAppSelector } from 'app/config/store';
 
+// как часто опрашивать статус фонового импорта
+const JOB_POLL_MS = 1000;
+
+const PHASE_LABELS: Record<string, string> = {
+  QUEUED: 'В очереди',
+  PARSING: 'Чтение файла',
+  UPSERTING: 'Обновление остатков',
+};
+
+const sleep = (ms: number) => new Promise(resolve => setTimeout(resolve, ms));
+
 const InventoryUpload = () => {
   const [file, setFile] = useState<File | null>(null);
   const [report, setReport] = useState<any>(null);
@@ -12,6 +23,9 @@ const InventoryUpload = () => {
   const [total, setTotal] = useState<number>(0);
   const [wipeBeforeImport, setWipeBeforeImport] = useState(false);
   const [loading, setLoading] = useState(false); // 🔹 новое состояние
+  const [job, setJob] = useState<any>(null);
+  // страница закрыта — опрос прекращается
+  const unmounted = useRef(false);
 
   const account = useAppSelector(state => state.authentication.account);
 
@@ -25,15 +39,30 @@ const InventoryUpload = () => {
   };
 
   useEffect(() => {
+    unmounted.current = false;
     loadUploads(0).catch(e => setError(e?.response?.data?.title || 'Failed to load history'));
+    return () => {
+      unmounted.current = true;
+    };
   }, []);
 
+  // импорт идёт в фоне: опрашиваем задачу, пока она не завершится
+  const waitForJob = async (jobId: string) => {
+    while (!unmounted.current) {
+      const res = await axios.get(`/api/inventory/import-jobs/${jobId}`);
+      setJob(res.data);
+      if (res.data.phase === 'DONE' || res.data.phase === 'FAILED') return res.data;
+      await sleep(JOB_POLL_MS);
+    }
+    return null;
+  };
+
   const onUpload = async () => {
     setReport(null);
     setError(null);
 
     if (!file) {
-      setError('Выберите .xlsx файл');
+      setError('Выберите файл .xlsx, .csv или .tsv');
       return;
     }
 
@@ -42,10 +71,17 @@ const InventoryUpload = () => {
 
     try {
       setLoading(true); // 🔹 показываем, что началась загрузка
-      const res = await axios.post(`/api/inventory/import?wipe=${wipeBeforeImport}`, fd, {
+      setJob(null);
+      const res = await axios.post(`/api/inventory/import-jobs?wipe=${wipeBeforeImport}`, fd, {
         headers: { 'Content-Type': 'multipart/form-data' },
       });
-      setReport(res.data);
+      const finished = await waitForJob(res.data.jobId);
+      if (!finished) return;
+      if (finished.phase === 'FAILED') {
+        setError((finished.errors || []).join('; ') || 'Ошибка импорта');
+        return;
+      }
+      setReport(finished.report);
       await loadUploads(0);
       setFile(null);
       (document.getElementById('file-input') as HTMLInputElement).value = '';
@@ -53,6 +89,7 @@ const InventoryUpload = () => {
       setError(e?.response?.data?.title || e?.message || 'Ошибка загрузки');
     } finally {
       setLoading(false); // 🔹 в любом случае снимаем флаг
+      setJob(null);
     }
   };
 
@@ -60,11 +97,11 @@ const InventoryUpload = () => {
     <div className="container mt-4">
       <Row>
         <Col md="5">
-          <h4>Загрузка остатков (.xlsx)</h4>
+          <h4>Загрузка остатков (.xlsx, .csv, .tsv)</h4>
           <input
             id="file-input"
             type="file"
-            accept=".xlsx,application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
+            accept=".xlsx,.csv,.tsv,.txt,application/vnd.openxmlformats-officedocument.spreadsheetml.sheet,text/csv,text/tab-separated-values"
             onChange={e => setFile(e.target.files?.[0] || null)}
             className="form-control mb-2"
           />
@@ -95,6 +132,17 @@ const InventoryUpload = () => {
             )}
           </Button>
 
+          {loading && job && (
+            <div className="text-muted mt-2">
+              {PHASE_LABELS[job.phase] || job.phase}: прочитано строк {job.rowsParsed}
+              {job.totalKeys > 0 && (
+                <>
+                  , обновлено {job.rowsUpserted} из {job.totalKeys}
+                </>
+              )}
+            </div>
+          )}
+
           {error && <div className="text-danger mt-2">{error}</div>}
           {report && (
             <div className="alert alert-success mt-3">
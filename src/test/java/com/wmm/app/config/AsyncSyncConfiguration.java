@@ -3,7 +3,11 @@ package com.wmm.app.config;
 import java.util.concurrent.Executor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 public class AsyncSyncConfiguration {
@@ -12,4 +16,29 @@ public class AsyncSyncConfiguration {
     public Executor taskExecutor() {
         return new SyncTaskExecutor();
     }
+
+    @Bean(name = "taskScheduler")
+    public TaskScheduler taskScheduler() {
+        return new ThreadPoolTaskScheduler();
+    }
+
+    @Bean(name = "inventoryImportExecutor")
+    public AsyncTaskExecutor inventoryImportExecutor() {
+        return new TaskExecutorAdapter(new SyncTaskExecutor());
+    }
+
+    @Bean(name = "visibleStockStreamExecutor")
+    public Executor visibleStockStreamExecutor() {
+        return new SyncTaskExecutor();
+    }
+
+    @Bean(name = "visibleStockRecalcScheduler")
+    public TaskScheduler visibleStockRecalcScheduler() {
+        return new ThreadPoolTaskScheduler();
+    }
+
+    @Bean(name = "cartReservationScheduler")
+    public TaskScheduler cartReservationScheduler() {
+        return new ThreadPoolTaskScheduler();
+    }
 }
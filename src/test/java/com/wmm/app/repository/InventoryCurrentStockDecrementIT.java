@@ -0,0 +1,162 @@
+package com.wmm.app.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.wmm.app.IntegrationTest;
+import com.wmm.app.domain.InventoryCurrent;
+import com.wmm.app.repository.InventoryCurrentRepositoryWithStockDecrement.InsufficientStockException;
+import com.wmm.app.service.MechanicOrderService;
+import com.wmm.app.service.dto.MechanicOrderDTO;
+import com.wmm.app.web.rest.errors.BadRequestAlertException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integration tests for {@link InventoryCurrentRepositoryWithStockDecrement}: параллельные заявки, оформленные через
+ * {@link MechanicOrderService#confirm}, не уводят остаток в минус.
+ */
+@IntegrationTest
+class InventoryCurrentStockDecrementIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InventoryCurrentStockDecrementIT.class);
+
+    private static final String STORAGE_TYPE = "STRESS";
+    private static final int BOLTS = 500;
+    private static final int NUTS = 700;
+
+    @Autowired
+    private InventoryCurrentRepository inventoryCurrentRepository;
+
+    @Autowired
+    private MechanicOrderService mechanicOrderService;
+
+    @BeforeEach
+    void init() {
+        inventoryCurrentRepository.saveAll(List.of(stock("BOLT", BOLTS), stock("NUT", NUTS)));
+    }
+
+    @AfterEach
+    void cleanup() {
+        inventoryCurrentRepository.deleteAll(
+            inventoryCurrentRepository.findAll().stream().filter(ic -> STORAGE_TYPE.equals(ic.getStorageType())).toList()
+        );
+    }
+
+    @Test
+    void decrementRefusesWhenStockIsShort() {
+        assertThat(inventoryCurrentRepository.decrementStock(STORAGE_TYPE, "BOLT", BOLTS + 1)).isEmpty();
+        assertThat(inventoryCurrentRepository.decrementStock(STORAGE_TYPE, "BOLT", 5)).hasValue(BOLTS - 5);
+        assertThat(inventoryCurrentRepository.decrementStock(STORAGE_TYPE, "MISSING", 1)).isEmpty();
+    }
+
+    @Test
+    void multiLineOrderIsAllOrNothing() {
+        // болтов хватает, гаек нет — болты тоже не должны списаться
+        assertThatThrownBy(() -> inventoryCurrentRepository.decrementAll(STORAGE_TYPE, Map.of("BOLT", 10, "NUT", NUTS + 1)))
+            .isInstanceOf(InsufficientStockException.class)
+            .extracting(e -> ((InsufficientStockException) e).getMaterial())
+            .isEqualTo("NUT");
+        assertThat(stockOf("BOLT")).isEqualTo(BOLTS);
+        assertThat(stockOf("NUT")).isEqualTo(NUTS);
+    }
+
+    @Test
+    void subtractAllMayGoNegativeAndSkipsMissingMaterials() {
+        // заявка уже выдана, а утренняя выгрузка успела уменьшить остаток
+        inventoryCurrentRepository.subtractAll(STORAGE_TYPE, Map.of("BOLT", BOLTS + 10, "MISSING", 1));
+
+        assertThat(stockOf("BOLT")).isEqualTo(-10);
+        assertThat(inventoryCurrentRepository.findByStorageTypeAndMaterial(STORAGE_TYPE, "MISSING")).isEmpty();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 50;
+        // каждая заявка: 2 болта + 3 гайки; болтов хватит на 250 заявок, гаек — на 233
+        MechanicOrderDTO order = new MechanicOrderDTO();
+        order.setOrderId("stress");
+        order.setStorageType(STORAGE_TYPE);
+        order.setLines(List.of(line("BOLT", 2), line("NUT", 3)));
+        int expectedSuccesses = Math.min(BOLTS / 2, NUTS / 3);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        try {
+                            mechanicOrderService.confirm("stress", order);
+                            succeeded.incrementAndGet();
+                        } catch (BadRequestAlertException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                })
+            );
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get(2, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - began) / 1e9;
+        pool.shutdown();
+
+        LOG.info(
+            "{} checkouts ({} refused) by {} threads in {} s: {} checkouts/s",
+            succeeded.get(),
+            refused.get(),
+            threads,
+            String.format("%.2f", seconds),
+            String.format("%.0f", (succeeded.get() + refused.get()) / seconds)
+        );
+
+        assertThat(succeeded.get()).isEqualTo(expectedSuccesses);
+        assertThat(succeeded.get() + refused.get()).isEqualTo(threads * attemptsPerThread);
+        assertThat(stockOf("BOLT")).isEqualTo(BOLTS - 2 * expectedSuccesses).isNotNegative();
+        assertThat(stockOf("NUT")).isEqualTo(NUTS - 3 * expectedSuccesses).isNotNegative();
+    }
+
+    private static MechanicOrderDTO.Line line(String material, int qty) {
+        MechanicOrderDTO.Line line = new MechanicOrderDTO.Line();
+        line.setTileId(-1L);
+        line.setMaterial(material);
+        line.setQty(qty);
+        return line;
+    }
+
+    private int stockOf(String material) {
+        return inventoryCurrentRepository.findByStorageTypeAndMaterial(STORAGE_TYPE, material).orElseThrow().getAvailableStock();
+    }
+
+    private static InventoryCurrent stock(String material, int qty) {
+        InventoryCurrent ic = new InventoryCurrent();
+        ic.setStorageType(STORAGE_TYPE);
+        ic.setMaterial(material);
+        ic.setMaterialDescription(material);
+        ic.setAvailableStock(qty);
+        ic.setUpdatedAt(Instant.now());
+        return ic;
+    }
+}
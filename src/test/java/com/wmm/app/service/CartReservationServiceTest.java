@@ -0,0 +1,34 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.wmm.app.repository.UserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link CartReservationService}.
+ */
+class CartReservationServiceTest {
+
+    @Test
+    void batchHeartbeatExtendsOnlyMechanics() {
+        CartReservationStore store = mock(CartReservationStore.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findActivatedLoginsWithAnyAuthority(any(), any())).thenReturn(Set.of("anna", "vera"));
+        when(store.extend(List.of("anna", "vera"))).thenReturn(Map.of("anna", 2, "vera", 0));
+
+        Map<String, Integer> extended = new CartReservationService(store, userRepository).extendReservations(
+            List.of("anna", "admin", "vera")
+        );
+
+        assertThat(extended).containsOnlyKeys("anna", "vera");
+        verify(store).extend(List.of("anna", "vera"));
+    }
+}
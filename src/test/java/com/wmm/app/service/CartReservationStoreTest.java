@@ -0,0 +1,207 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.wmm.app.domain.ReservedItem;
+import com.wmm.app.repository.ReservedItemRepository;
+import com.wmm.app.repository.ReservedItemRepositoryWithWriteBehind.Key;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Unit tests for {@link CartReservationStore}.
+ */
+class CartReservationStoreTest {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private ReservedItemRepository repo;
+    private MutableClock clock;
+    private CartReservationStore store;
+
+    @BeforeEach
+    void init() {
+        repo = mock(ReservedItemRepository.class);
+        clock = new MutableClock(Instant.parse("2025-11-10T08:00:00.250Z"));
+        store = new CartReservationStore(repo, TransactionOperations.withoutTransaction(), mock(TaskScheduler.class), TTL, clock);
+    }
+
+    @AfterEach
+    void cleanup() {
+        store.shutdown();
+    }
+
+    @Test
+    void countsExcludeOwnHoldAndRespectStorageType() {
+        store.reserve("anna", "BOLT", 2, "A01");
+        store.reserve("boris", "BOLT", 3, "A01");
+        store.reserve("boris", "NUT", 1, "B02");
+        store.reserve("vera", "BOLT", 5, "B02");
+        store.reserve("vera", "BOLT", 4, "B02");
+
+        assertThat(store.reservedByOthers(List.of("BOLT", "NUT", "WASHER"), null, "anna")).containsExactly(
+            entry("BOLT", 7),
+            entry("NUT", 1),
+            entry("WASHER", 0)
+        );
+        assertThat(store.reservedByOthers(List.of("BOLT"), "A01", "anna")).containsEntry("BOLT", 3);
+
+        store.releaseAll("boris");
+        assertThat(store.reservedByOthers(List.of("BOLT", "NUT"), null, "anna")).containsEntry("BOLT", 4).containsEntry("NUT", 0);
+    }
+
+    @Test
+    void wheelExpiresHoldsButKeepsExtendedOnes() {
+        store.reserve("anna", "BOLT", 2, "A01");
+        store.reserve("boris", "BOLT", 3, "A01");
+        clock.advance(Duration.ofSeconds(40));
+        store.extend("boris");
+
+        // продлённый резерв boris переезжает в новый слот, а не снимается вместе с резервом anna
+        clock.advance(Duration.ofSeconds(21));
+        assertThat(store.active("anna")).isEmpty();
+        assertThat(store.active("boris")).extracting(ReservedItem::getMaterialCode).containsExactly("BOLT");
+        assertThat(store.reservedByOthers(List.of("BOLT"), null, "vera")).containsEntry("BOLT", 3);
+
+        clock.advance(TTL);
+        assertThat(store.reservedByOthers(List.of("BOLT"), null, "vera")).containsEntry("BOLT", 0);
+        assertThat(store.extend("boris")).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changesAreCoalescedIntoOneWrite() {
+        store.reserve("anna", "BOLT", 2, "A01");
+        for (int i = 0; i < 10; i++) store.extend("anna");
+        store.reserve("anna", "NUT", 1, "A01");
+        store.release("anna", "NUT");
+        when(repo.extendActive(any(), any(), any())).thenReturn(1);
+
+        store.flush();
+        store.flush();
+
+        ArgumentCaptor<Collection<ReservedItem>> upserts = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<Key>> deletes = ArgumentCaptor.forClass(Collection.class);
+        verify(repo, times(1)).writeBehind(upserts.capture(), deletes.capture());
+        assertThat(upserts.getValue()).extracting(ReservedItem::getMaterialCode).containsExactly("BOLT");
+        assertThat(deletes.getValue()).containsExactly(new Key("anna", "NUT"));
+        // десять heartbeat — одно продление на пользователя
+        verify(repo, times(1)).extendActive("anna", clock.instant().plus(TTL), clock.instant());
+    }
+
+    @Test
+    void batchHeartbeatExtendsEveryUserWithOneUpdateEach() {
+        store.reserve("anna", "BOLT", 2, "A01");
+        store.reserve("anna", "NUT", 1, "A01");
+        store.reserve("boris", "BOLT", 3, "A01");
+        store.flush();
+        clock.advance(Duration.ofSeconds(30));
+
+        assertThat(store.extend(List.of("anna", "boris", "vera"))).containsExactly(entry("anna", 2), entry("boris", 1), entry("vera", 0));
+        store.flush();
+
+        Instant newExpiry = clock.instant().plus(TTL);
+        verify(repo).extendActive("anna", newExpiry, clock.instant());
+        verify(repo).extendActive("boris", newExpiry, clock.instant());
+        verify(repo, times(1)).writeBehind(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void heartbeatMissingRowsInTableRewritesTheHolds() {
+        store.reserve("anna", "BOLT", 2, "A01");
+        store.reserve("anna", "NUT", 1, "A01");
+        store.flush();
+        clock.advance(Duration.ofSeconds(30));
+        store.extend("anna");
+        // в таблице продлилась только одна строка из двух
+        when(repo.extendActive(any(), any(), any())).thenReturn(1);
+        store.flush();
+        store.flush();
+
+        ArgumentCaptor<Collection<ReservedItem>> upserts = ArgumentCaptor.forClass(Collection.class);
+        verify(repo, times(2)).writeBehind(upserts.capture(), any());
+        assertThat(upserts.getValue())
+            .extracting(ReservedItem::getMaterialCode, ReservedItem::getExpiresAt)
+            .containsExactlyInAnyOrder(tuple("BOLT", clock.instant().plus(TTL)), tuple("NUT", clock.instant().plus(TTL)));
+    }
+
+    @Test
+    void persistedHoldsAreLoadedOnFirstAccess() {
+        ReservedItem saved = new ReservedItem();
+        saved.setReservedBy("boris");
+        saved.setMaterialCode("BOLT");
+        saved.setQty(3);
+        saved.setStorageType("A01");
+        saved.setReservedAt(clock.instant());
+        saved.setExpiresAt(clock.instant().plusSeconds(30));
+        when(repo.findByExpiresAtAfter(any())).thenReturn(List.of(saved));
+
+        assertThat(store.active("boris")).extracting(ReservedItem::getQty).containsExactly(3);
+        assertThat(store.reservedByOthers(List.of("BOLT"), "A01", "anna")).containsEntry("BOLT", 3);
+        store.flush();
+        verify(repo, never()).writeBehind(any(), any());
+    }
+
+    @Test
+    void countsBeforeFirstLoadComeFromGroupedQuery() {
+        ReservedItemRepository.MaterialQty bolt = mock(ReservedItemRepository.MaterialQty.class);
+        when(bolt.getMaterialCode()).thenReturn("BOLT");
+        when(bolt.getQty()).thenReturn(3L);
+        when(repo.sumActiveByMaterialsAndStorageTypeExcludingUser(any(), any(), any(), any())).thenReturn(List.of(bolt));
+
+        assertThat(store.reservedByOthers(List.of("BOLT", "NUT"), "A01", "anna")).containsExactly(entry("BOLT", 3), entry("NUT", 0));
+        verify(repo, never()).findByExpiresAtAfter(any());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    private static Map.Entry<String, Integer> entry(String key, int value) {
+        return Map.entry(key, value);
+    }
+}
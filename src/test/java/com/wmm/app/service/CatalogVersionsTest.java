@@ -0,0 +1,55 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for {@link CatalogVersions}.
+ */
+class CatalogVersionsTest {
+
+    private final CatalogVersions versions = new CatalogVersions();
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void stockBumpChangesOnlyThatWarehouse() {
+        String a = versions.catalogTag("A");
+        String b = versions.catalogTag("B");
+        String global = versions.globalTag();
+
+        versions.bump("A");
+
+        assertThat(versions.catalogTag("A")).isNotEqualTo(a).startsWith("\"").endsWith("\"");
+        assertThat(versions.catalogTag("B")).isEqualTo(b);
+        assertThat(versions.globalTag()).isEqualTo(global);
+
+        versions.bumpAll();
+        assertThat(versions.catalogTag("B")).isNotEqualTo(b);
+        assertThat(versions.globalTag()).isNotEqualTo(global);
+    }
+
+    @Test
+    void bumpInsideTransactionWaitsForCommit() {
+        String before = versions.catalogTag("A");
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump("A");
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(versions.catalogTag("A")).isEqualTo(before);
+
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        assertThat(versions.catalogTag("A")).isNotEqualTo(before);
+    }
+}
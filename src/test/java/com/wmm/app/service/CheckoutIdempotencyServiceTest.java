@@ -0,0 +1,151 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wmm.app.domain.CheckoutIdempotency;
+import com.wmm.app.repository.CheckoutIdempotencyRepository;
+import com.wmm.app.web.rest.errors.BadRequestAlertException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for {@link CheckoutIdempotencyService}.
+ */
+class CheckoutIdempotencyServiceTest {
+
+    record Request(String storageType, List<String> materials) {}
+
+    record Response(Long id, Instant createdAt) {}
+
+    private static final Request REQUEST = new Request("A01", List.of("BOLT"));
+    private static final Response RESPONSE = new Response(1051L, Instant.parse("2025-11-11T09:00:00Z"));
+
+    private CheckoutIdempotencyRepository repo;
+    private CheckoutIdempotencyService service;
+
+    @BeforeEach
+    void init() {
+        repo = mock(CheckoutIdempotencyRepository.class);
+        service = new CheckoutIdempotencyService(
+            repo,
+            new ConcurrentMapCacheManager(CheckoutIdempotencyService.RESPONSES_CACHE),
+            new ObjectMapper().findAndRegisterModules()
+        );
+    }
+
+    @Test
+    void retryIsAnsweredFromCacheWithoutTouchingTheTable() {
+        when(repo.claim(eq("anna"), eq("k1"), anyString(), any())).thenReturn(1);
+
+        assertThat(service.begin("anna", "k1", REQUEST, Response.class)).isEmpty();
+        service.complete("anna", "k1", REQUEST, RESPONSE);
+
+        assertThat(service.begin("anna", "k1", REQUEST, Response.class)).contains(RESPONSE);
+        verify(repo, times(1)).claim(anyString(), anyString(), anyString(), any());
+        verify(repo, never()).findByLoginAndIdempotencyKey(anyString(), anyString());
+    }
+
+    @Test
+    void storedResponseIsReplayedAfterCacheMiss() {
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        when(repo.claim(eq("anna"), eq("k1"), hash.capture(), any())).thenReturn(1, 0);
+        service.begin("anna", "k1", REQUEST, Response.class);
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        service.complete("anna", "k1", REQUEST, RESPONSE);
+        verify(repo).complete(eq("anna"), eq("k1"), json.capture());
+
+        CheckoutIdempotency row = new CheckoutIdempotency();
+        row.setRequestHash(hash.getValue());
+        row.setResponse(json.getValue());
+        when(repo.findByLoginAndIdempotencyKey("anna", "k1")).thenReturn(Optional.of(row));
+        CheckoutIdempotencyService restarted = new CheckoutIdempotencyService(
+            repo,
+            new ConcurrentMapCacheManager(CheckoutIdempotencyService.RESPONSES_CACHE),
+            new ObjectMapper().findAndRegisterModules()
+        );
+
+        assertThat(restarted.begin("anna", "k1", REQUEST, Response.class)).contains(RESPONSE);
+    }
+
+    @Test
+    void concurrentRetryAndReusedKeyAreRejected() {
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        when(repo.claim(eq("anna"), eq("k1"), hash.capture(), any())).thenReturn(1, 0, 0);
+        service.begin("anna", "k1", REQUEST, Response.class);
+
+        CheckoutIdempotency inFlight = new CheckoutIdempotency();
+        inFlight.setRequestHash(hash.getValue());
+        when(repo.findByLoginAndIdempotencyKey("anna", "k1")).thenReturn(Optional.of(inFlight));
+
+        assertThatThrownBy(() -> service.begin("anna", "k1", REQUEST, Response.class)).isInstanceOf(ConcurrencyFailureException.class);
+        assertThatThrownBy(() -> service.begin("anna", "k1", new Request("A01", List.of("NUT")), Response.class)).isInstanceOf(
+            BadRequestAlertException.class
+        );
+    }
+
+    @Test
+    void retryReplaysResponseWithoutRunningCheckoutAgain() {
+        when(repo.claim(eq("anna"), eq("k1"), anyString(), any())).thenReturn(1);
+        AtomicInteger orders = new AtomicInteger();
+
+        assertThat(service.execute("anna", "k1", REQUEST, Response.class, () -> respond(orders))).isEqualTo(RESPONSE);
+        assertThat(service.execute("anna", "k1", REQUEST, Response.class, () -> respond(orders))).isEqualTo(RESPONSE);
+
+        assertThat(orders).hasValue(1);
+    }
+
+    @Test
+    void failedCheckoutStoresNoResponse() {
+        when(repo.claim(eq("anna"), eq("k1"), anyString(), any())).thenReturn(1);
+
+        assertThatThrownBy(() ->
+            service.execute("anna", "k1", REQUEST, Response.class, () -> {
+                throw new IllegalStateException("duplicate tile");
+            })
+        ).isInstanceOf(IllegalStateException.class);
+
+        verify(repo, never()).complete(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void responseIsCachedOnlyAfterCommit() {
+        when(repo.claim(eq("anna"), eq("k1"), anyString(), any())).thenReturn(1);
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CheckoutIdempotencyService.RESPONSES_CACHE);
+        service = new CheckoutIdempotencyService(repo, cacheManager, new ObjectMapper().findAndRegisterModules());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.execute("anna", "k1", REQUEST, Response.class, () -> RESPONSE);
+            assertThat(cacheManager.getCache(CheckoutIdempotencyService.RESPONSES_CACHE).get("anna\nk1")).isNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(cacheManager.getCache(CheckoutIdempotencyService.RESPONSES_CACHE).get("anna\nk1")).isNotNull();
+    }
+
+    private static Response respond(AtomicInteger orders) {
+        orders.incrementAndGet();
+        return RESPONSE;
+    }
+}
@@ -0,0 +1,81 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.wmm.app.service.InventoryAggregator.Key;
+import com.wmm.app.service.InventoryAggregator.Totals;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link InventoryAggregator}.
+ */
+class InventoryAggregatorTest {
+
+    @Test
+    void sumsStockAndCountsRowsPerKey() {
+        InventoryAggregator aggregator = new InventoryAggregator();
+        aggregator.add("BUD", "100200", "Filter", 3);
+        aggregator.add("BUD", "100200", "Filter", 4);
+        aggregator.add("CLD", "100200", "Filter", 10);
+
+        Map<Key, Totals> totals = aggregator.totals();
+
+        assertThat(totals).hasSize(2);
+        assertThat(totals.get(new Key("BUD", "100200")).getAvailableStock()).isEqualTo(7);
+        assertThat(totals.get(new Key("BUD", "100200")).getRowCount()).isEqualTo(2);
+        assertThat(totals.get(new Key("CLD", "100200")).getAvailableStock()).isEqualTo(10);
+        assertThat(totals.get(new Key("CLD", "100200")).getRowCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsFirstDescription() {
+        InventoryAggregator aggregator = new InventoryAggregator();
+        aggregator.add("BUD", "100200", null, 1);
+        aggregator.add("BUD", "100200", "Oil filter", 1);
+        aggregator.add("BUD", "100200", "Oil filter (old)", 1);
+
+        assertThat(aggregator.totals().get(new Key("BUD", "100200")).getMaterialDescription()).isEqualTo("Oil filter");
+    }
+
+    @Test
+    void missingDescriptionIsEmpty() {
+        InventoryAggregator aggregator = new InventoryAggregator();
+        aggregator.add("BUD", "100200", null, 1);
+
+        assertThat(aggregator.totals().get(new Key("BUD", "100200")).getMaterialDescription()).isEmpty();
+    }
+
+    @Test
+    void preservesFirstSeenOrder() {
+        InventoryAggregator aggregator = new InventoryAggregator();
+        aggregator.add("CLD", "2", "", 1);
+        aggregator.add("BUD", "1", "", 1);
+        aggregator.add("CLD", "2", "", 1);
+
+        assertThat(aggregator.totals().keySet()).containsExactly(new Key("CLD", "2"), new Key("BUD", "1"));
+        assertThat(aggregator.size()).isEqualTo(2);
+    }
+
+    @Test
+    void fingerprintIgnoresRowOrderButTracksChanges() {
+        InventoryAggregator a = new InventoryAggregator();
+        a.add("BUD", "1", "Filter", 3);
+        a.add("BUD", "2", "Bolt", 5);
+        a.add("CLD", "1", "Filter", 1);
+
+        InventoryAggregator reordered = new InventoryAggregator();
+        reordered.add("CLD", "1", "Filter", 1);
+        reordered.add("BUD", "2", "Bolt", 5);
+        reordered.add("BUD", "1", "Filter", 3);
+
+        InventoryAggregator changed = new InventoryAggregator();
+        changed.add("BUD", "1", "Filter", 3);
+        changed.add("BUD", "2", "Bolt", 4);
+        changed.add("CLD", "1", "Filter", 1);
+
+        assertThat(reordered.fingerprints()).isEqualTo(a.fingerprints());
+        assertThat(changed.fingerprints().get("BUD")).isNotEqualTo(a.fingerprints().get("BUD"));
+        assertThat(changed.fingerprints().get("CLD")).isEqualTo(a.fingerprints().get("CLD"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link InventoryDelimitedReader}.
+ */
+class InventoryDelimitedReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void detectsSemicolonAndHandlesQuotesBomAndCrLf() throws Exception {
+        String csv =
+            "\uFEFFStorage Type;Material;Material Description;Available Stock\r\n" +
+            "A01;M-1;\"Болт; М8 \"\"DIN\"\"\";1 234\r\n" +
+            "\r\n" +
+            "A02;M-2;\"две\nстроки\";5";
+
+        List<List<String>> rows = read(csv, (byte) 0, 1 << 20);
+
+        assertThat(rows).containsExactly(
+            List.of("Storage Type", "Material", "Material Description", "Available Stock"),
+            List.of("A01", "M-1", "Болт; М8 \"DIN\"", "1 234"),
+            List.of("A02", "M-2", "две\nстроки", "5")
+        );
+    }
+
+    @Test
+    void readsTabSeparatedWithEmptyCells() throws Exception {
+        List<List<String>> rows = read("a\tb\tc\n\t\tx\n", (byte) '\t', 1 << 20);
+
+        assertThat(rows).containsExactly(List.of("a", "b", "c"), List.of("", "", "x"));
+    }
+
+    @Test
+    void rowsCrossingMappingWindowAreReadWhole() throws Exception {
+        StringBuilder sb = new StringBuilder("st,mat,desc,qty\n");
+        for (int i = 0; i < 200; i++) {
+            sb.append("S").append(i % 3).append(",M").append(i).append(",\"d,").append(i).append("\",").append(i).append('\n');
+        }
+
+        List<List<String>> small = read(sb.toString(), (byte) 0, 37);
+        List<List<String>> whole = read(sb.toString(), (byte) 0, 1 << 20);
+
+        assertThat(small).hasSize(201).isEqualTo(whole);
+        assertThat(small.get(200)).containsExactly("S1", "M199", "d,199", "199");
+    }
+
+    @Test
+    void quantityViewIsAUsableCharSequence() throws Exception {
+        Path file = Files.write(dir.resolve("qty.csv"), "st,mat,desc,qty\nA01,M-1,x,12 345\n".getBytes(StandardCharsets.UTF_8));
+        List<String> views = new ArrayList<>();
+        new InventoryDelimitedReader(1 << 20).read(file, (byte) 0, (rowNum, row) -> {
+            if (rowNum == 0) return;
+            assertThat(row.quantity(3)).isEqualTo(12345);
+            CharSequence view = (CharSequence) row;
+            views.add(view.subSequence(3, 6).toString());
+            views.add(view.toString());
+        });
+
+        assertThat(views).containsExactly("345", "12 345");
+    }
+
+    private List<List<String>> read(String content, byte delimiter, long window) throws Exception {
+        Path file = Files.write(dir.resolve("stock.csv"), content.getBytes(StandardCharsets.UTF_8));
+        List<List<String>> rows = new ArrayList<>();
+        new InventoryDelimitedReader(window).read(file, delimiter, (rowNum, row) -> {
+            List<String> cells = new ArrayList<>();
+            for (int c = 0; c < row.size(); c++) cells.add(row.cell(c));
+            rows.add(cells);
+        });
+        return rows;
+    }
+}
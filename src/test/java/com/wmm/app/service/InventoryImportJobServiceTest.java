@@ -0,0 +1,54 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Unit tests for {@link InventoryImportJobService}.
+ */
+class InventoryImportJobServiceTest {
+
+    private final MockMultipartFile file = new MockMultipartFile(
+        "file",
+        "stock.csv",
+        "text/csv",
+        "Storage Type,Material,Material Description,Available Stock\nA01,M-1,Bolt,5\n".getBytes(StandardCharsets.UTF_8)
+    );
+
+    @Test
+    void submittedJobIsQueuedAndVisibleOnlyToSubmitterAndAdmin() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        InventoryImportJobService service = new InventoryImportJobService(mock(InventoryImportService.class), queued::add);
+
+        String jobId = service.submit(file, false, "keeper").jobId();
+
+        assertThat(queued).hasSize(1);
+        assertThat(service.find(jobId, "keeper", false)).isPresent();
+        assertThat(service.find(jobId, "admin", true)).isPresent();
+        assertThat(service.find(jobId, "other", false)).isEmpty();
+        // выполненная задача удаляет свой временный файл
+        queued.get(0).run();
+    }
+
+    @Test
+    void rejectedJobIsAnswered503() {
+        InventoryImportJobService service = new InventoryImportJobService(mock(InventoryImportService.class), task -> {
+            throw new RejectedExecutionException("queue is full");
+        });
+
+        assertThatThrownBy(() -> service.submit(file, false, "admin"))
+            .isInstanceOf(ResponseStatusException.class)
+            .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+            .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,44 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Unit tests for {@link InventoryXlsxStreamReader}.
+ */
+class InventoryXlsxStreamReaderTest {
+
+    @Test
+    void readsSharedAndInlineStringsNumbersAndBlankCells() throws Exception {
+        List<Integer> rowNums = new ArrayList<>();
+        List<List<String>> rows = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+
+        new InventoryXlsxStreamReader()
+            .read(new ClassPathResource("inventory/stock-sample.xlsx").getFile(), (rowNum, row) -> {
+                rowNums.add(rowNum);
+                String[] cells = new String[row.size()];
+                for (int c = 0; c < cells.length; c++) cells[c] = row.cell(c);
+                rows.add(Arrays.asList(cells));
+                quantities.add(row.quantity(3));
+            });
+
+        // третьей строки в файле нет вовсе
+        assertThat(rowNums).containsExactly(0, 1, 3, 4);
+        assertThat(rows).containsExactly(
+            List.of("Storage Type", "Material", "Material Description", "Available Stock"),
+            // общая строка с форматированием (rich text) и число в формате "#,##0"
+            List.of("A01", "M-1", "Болт М8", "1,234"),
+            // пустая ячейка со стилем и количество inline-строкой
+            List.of("A01", "M-2", "", "1 500"),
+            // пропущенные ячейки
+            Arrays.asList(null, "M-3", null, "7")
+        );
+        assertThat(quantities.subList(1, 4)).containsExactly(1234, 1500, 7);
+    }
+}
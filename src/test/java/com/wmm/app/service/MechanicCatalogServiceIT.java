@@ -0,0 +1,119 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.wmm.app.IntegrationTest;
+import com.wmm.app.domain.InventoryVisiblePerStorage;
+import com.wmm.app.domain.MechanicTile;
+import com.wmm.app.domain.Warehouse;
+import com.wmm.app.repository.InventoryVisiblePerStorageRepository;
+import com.wmm.app.repository.MechanicTileRepository;
+import com.wmm.app.repository.WarehouseRepository;
+import com.wmm.app.service.dto.MechanicTileViewDTO;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Integration tests for {@link MechanicCatalogService}: страница витрины из снимка стоит один запрос (остатки)
+ * независимо от её размера.
+ */
+@IntegrationTest
+class MechanicCatalogServiceIT {
+
+    private static final String STORAGE_TYPE = "QCNT";
+    private static final int TILES = 30;
+
+    // плитки берутся из снимка, из БД — только остатки страницы
+    private static final long QUERIES_PER_PAGE = 1;
+
+    @Autowired
+    private MechanicCatalogService service;
+
+    @Autowired
+    private MechanicTileRepository tileRepo;
+
+    @Autowired
+    private WarehouseRepository warehouseRepo;
+
+    @Autowired
+    private InventoryVisiblePerStorageRepository visibleRepo;
+
+    @Autowired
+    private MechanicCatalogSnapshot snapshot;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Warehouse warehouse;
+    private final List<MechanicTile> tiles = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        warehouse = warehouseRepo.save(new Warehouse().code(STORAGE_TYPE).name(STORAGE_TYPE).active(true));
+        List<InventoryVisiblePerStorage> stock = new ArrayList<>();
+        for (int i = 0; i < TILES; i++) {
+            String material = "QCNT-" + i;
+            tiles.add(tileRepo.save(new MechanicTile().title("Tile " + i).materialCode(material).active(true).addWarehouses(warehouse)));
+            InventoryVisiblePerStorage v = new InventoryVisiblePerStorage();
+            v.setStorageType(STORAGE_TYPE);
+            v.setMaterial(material);
+            v.setMaterialDescription(material);
+            v.setVisibleStock(i);
+            v.setUpdatedAt(Instant.now());
+            stock.add(v);
+        }
+        visibleRepo.saveAll(stock);
+        // данные положены мимо ресурсов — снимок о них не знает
+        snapshot.invalidate();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void cleanup() {
+        statistics.setStatisticsEnabled(false);
+        visibleRepo.deleteAllByStorageType(STORAGE_TYPE);
+        tileRepo.deleteAll(tiles);
+        tiles.clear();
+        warehouseRepo.delete(warehouse);
+        snapshot.invalidate();
+    }
+
+    @Test
+    void pageCostsFixedNumberOfQueries() {
+        // первый запрос собирает снимок
+        service.list(STORAGE_TYPE, null, null, null, PageRequest.of(0, 1));
+        assertThat(queriesFor(PageRequest.of(0, 5))).isEqualTo(QUERIES_PER_PAGE);
+        assertThat(queriesFor(PageRequest.of(0, 25))).isEqualTo(QUERIES_PER_PAGE);
+    }
+
+    @Test
+    void stockIsMatchedToEveryTileOfThePage() {
+        Page<MechanicTileViewDTO> page = service.list(STORAGE_TYPE, null, null, null, PageRequest.of(0, TILES));
+
+        assertThat(page.getContent()).hasSize(TILES).allSatisfy(t -> assertThat(t.availableStock).isEqualTo(stockOf(t.materialCode)));
+    }
+
+    private long queriesFor(PageRequest pageable) {
+        statistics.clear();
+        Page<MechanicTileViewDTO> page = service.list(STORAGE_TYPE, null, null, null, pageable);
+        assertThat(page.getContent()).hasSize(pageable.getPageSize());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static int stockOf(String material) {
+        return Integer.parseInt(material.substring("QCNT-".length()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.wmm.app.domain.MechanicTile;
+import com.wmm.app.domain.ProductCategory;
+import com.wmm.app.domain.Warehouse;
+import com.wmm.app.repository.InventoryCurrentRepository;
+import com.wmm.app.repository.InventoryVisiblePerStorageRepository;
+import com.wmm.app.repository.MechanicTileRepository;
+import com.wmm.app.service.dto.MechanicTileViewDTO;
+import com.wmm.app.web.rest.errors.BadRequestAlertException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Unit tests for {@link MechanicCatalogService}.
+ */
+class MechanicCatalogServiceTest {
+
+    private static final Warehouse A01 = new Warehouse().id(1L).code("A01");
+    private static final ProductCategory BOLTS = new ProductCategory().id(10L).name("Болты");
+
+    private MechanicTileRepository tileRepo;
+    private MechanicCatalogSnapshot snapshot;
+    private MechanicCatalogService service;
+    private final List<MechanicTile> tiles = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        tileRepo = mock(MechanicTileRepository.class);
+        when(tileRepo.findAllWithEagerRelationships()).thenReturn(tiles);
+        snapshot = new MechanicCatalogSnapshot(tileRepo, new CatalogVersions());
+        service = new MechanicCatalogService(
+            tileRepo,
+            mock(InventoryCurrentRepository.class),
+            mock(InventoryVisiblePerStorageRepository.class),
+            snapshot
+        );
+
+        tiles.add(tile(1L, "Шайба М8", "W-8"));
+        tiles.add(tile(2L, "Болт М8", "B-8").addCategories(BOLTS));
+        tiles.add(tile(3L, "Анкерный болт", "A-1").addCategories(BOLTS));
+        tiles.add(tile(4L, "Болт М10", "B-10").addCategories(BOLTS).active(false));
+    }
+
+    @Test
+    void pageIsServedFromSnapshotInTitleOrder() {
+        Page<MechanicTileViewDTO> page = service.list("A01", " ", " болты ", null, PageRequest.of(0, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(t -> t.id).containsExactly(3L, 2L);
+        assertThat(page.getContent().get(0).categories).containsExactly("Болты");
+
+        service.list("A01", null, null, null, PageRequest.of(0, 10));
+        verify(tileRepo, times(1)).findAllWithEagerRelationships();
+    }
+
+    @Test
+    void cursorOfLastTileSeeksPastIt() {
+        Page<MechanicTileViewDTO> first = service.list("A01", null, null, null, PageRequest.of(0, 2));
+        String cursor = MechanicCatalogService.cursorOf(first.getContent().get(1));
+
+        Page<MechanicTileViewDTO> second = service.list("A01", null, null, cursor, PageRequest.of(0, 2));
+
+        assertThat(first.getContent()).extracting(t -> t.id).containsExactly(3L, 2L);
+        assertThat(second.getContent()).extracting(t -> t.id).containsExactly(1L);
+        assertThat(second.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void searchRanksBySimilarityAndToleratesTypos() {
+        // "болт м" похоже на "Болт М8" (6/7) сильнее, чем на "Анкерный болт" (5/7)
+        Page<MechanicTileViewDTO> found = service.list("A01", "болт м", null, null, PageRequest.of(0, 10));
+        assertThat(found.getContent()).extracting(t -> t.id).containsExactly(2L, 3L);
+
+        // опечатка: word_similarity 0.6 — на пороге; при равном ранге порядок (title, id)
+        Page<MechanicTileViewDTO> typo = service.list("A01", "болд", null, null, PageRequest.of(0, 10));
+        assertThat(typo.getContent()).extracting(t -> t.id).containsExactly(3L, 2L);
+
+        // похожий код материала — другой материал, код ищется только подстрокой
+        assertThat(service.list("A01", "B-9", null, null, PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(service.list("A01", "b-8", null, null, PageRequest.of(0, 10)).getContent()).extracting(t -> t.id).containsExactly(2L);
+    }
+
+    @Test
+    void changedTileIsReloadedAlone() {
+        service.list("A01", null, null, null, PageRequest.of(0, 10));
+        MechanicTile renamed = tile(1L, "Болт-шайба", "W-8").addCategories(BOLTS);
+        when(tileRepo.findAllWithEagerRelationshipsByIdIn(anyList())).thenReturn(List.of(renamed));
+
+        snapshot.tileChanged(1L);
+        Page<MechanicTileViewDTO> page = service.list("A01", null, "Болты", null, PageRequest.of(0, 10));
+
+        assertThat(page.getContent()).extracting(t -> t.title).containsExactly("Анкерный болт", "Болт М8", "Болт-шайба");
+        verify(tileRepo, times(1)).findAllWithEagerRelationships();
+        verify(tileRepo).findAllWithEagerRelationshipsByIdIn(List.of(1L));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> service.list("A01", null, null, "bm90LWEtY3Vyc29y", PageRequest.of(0, 10))).isInstanceOf(
+            BadRequestAlertException.class
+        );
+        verify(tileRepo, never()).findAllWithEagerRelationships();
+    }
+
+    private static MechanicTile tile(Long id, String title, String material) {
+        MechanicTile t = new MechanicTile().title(title).materialCode(material).active(true).addWarehouses(A01);
+        t.setId(id);
+        return t;
+    }
+}
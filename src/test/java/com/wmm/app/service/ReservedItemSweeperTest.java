@@ -0,0 +1,37 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.wmm.app.repository.ReservedItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit tests for {@link ReservedItemSweeper}.
+ */
+class ReservedItemSweeperTest {
+
+    @Test
+    void sweepDeletesExpiredRowsInOneStatementAndRecordsMetrics() {
+        ReservedItemRepository repo = mock(ReservedItemRepository.class);
+        when(repo.deleteExpiredBefore(any())).thenReturn(3, 0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReservedItemSweeper sweeper = new ReservedItemSweeper(repo, registry);
+
+        assertThat(sweeper.sweep()).isEqualTo(3);
+        assertThat(sweeper.sweep()).isZero();
+
+        ArgumentCaptor<Instant> threshold = ArgumentCaptor.forClass(Instant.class);
+        verify(repo, times(2)).deleteExpiredBefore(threshold.capture());
+        assertThat(threshold.getValue()).isBefore(Instant.now());
+        assertThat(registry.get(ReservedItemSweeper.SWEPT_METER_NAME).counter().count()).isEqualTo(3);
+        assertThat(registry.get(ReservedItemSweeper.SWEEP_METER_NAME).timer().count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,138 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Key;
+import com.wmm.app.repository.MechanicOrderLineRepository;
+import com.wmm.app.repository.MechanicOrderLineRepository.OpenQty;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for {@link ReservedQtyLedger}.
+ */
+class ReservedQtyLedgerTest {
+
+    private MechanicOrderLineRepository lineRepo;
+    private ReservedQtyLedger ledger;
+
+    @BeforeEach
+    void init() {
+        lineRepo = mock(MechanicOrderLineRepository.class);
+        when(lineRepo.sumOpenQtyGrouped()).thenReturn(List.of(openQty("A", "m1", 5)));
+        ledger = new ReservedQtyLedger(lineRepo);
+        ledger.seed();
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(ledger);
+    }
+
+    @Test
+    void seedsFromOpenOrdersAndAppliesAdjustmentsOutsideTransaction() {
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(5);
+        assertThat(ledger.reserved("B", "m1")).isZero();
+
+        ledger.adjust("A", "m1", 3);
+        ledger.adjust("B", "m1", 2);
+
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(8);
+        assertThat(ledger.reserved("B", "m1")).isEqualTo(2);
+    }
+
+    @Test
+    void transactionalAdjustmentIsVisibleOnlyToItsTransactionUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.adjust("A", "m1", -5);
+        assertThat(ledger.reserved("A", "m1")).isZero();
+
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        // другой поток (без транзакции) видит только закоммиченное
+        TransactionSynchronizationManager.unbindResource(ledger);
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(5);
+
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        assertThat(ledger.reserved("A", "m1")).isZero();
+    }
+
+    @Test
+    void rolledBackAdjustmentIsDiscarded() {
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.adjust("A", "m1", 4);
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(5);
+    }
+
+    @Test
+    void reconcileRepairsDrift() {
+        ledger.adjust("A", "m1", 1);
+        ledger.adjust("C", "m9", 7);
+        when(lineRepo.sumOpenQtyGrouped()).thenReturn(List.of(openQty("A", "m1", 5), openQty("B", "m2", 2)));
+
+        // первая сверка только отмечает расхождения, вторая подтверждает и исправляет
+        assertThat(ledger.reconcile()).isEmpty();
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(6);
+        List<Key> repaired = ledger.reconcile();
+
+        assertThat(repaired).containsExactlyInAnyOrder(new Key("A", "m1"), new Key("B", "m2"), new Key("C", "m9"));
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(5);
+        assertThat(ledger.reserved("B", "m2")).isEqualTo(2);
+        assertThat(ledger.reserved("C", "m9")).isZero();
+    }
+
+    @Test
+    void commitSeenBeforeItsAfterCommitIsNotCountedTwice() {
+        // заявка уже закоммичена, но afterCommit ещё не применил её к журналу
+        when(lineRepo.sumOpenQtyGrouped()).thenReturn(List.of(openQty("A", "m1", 8)));
+        assertThat(ledger.reconcile()).isEmpty();
+
+        ledger.adjust("A", "m1", 3);
+
+        assertThat(ledger.reconcile()).isEmpty();
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(8);
+    }
+
+    @Test
+    void emptyKeysAreDroppedWithoutLosingConcurrentAdjustments() {
+        ledger.adjust("A", "m1", -5);
+        when(lineRepo.sumOpenQtyGrouped()).thenReturn(List.of());
+        ledger.reconcile();
+
+        ledger.adjust("A", "m1", 2);
+
+        assertThat(ledger.reserved("A", "m1")).isEqualTo(2);
+    }
+
+    private static OpenQty openQty(String storageType, String material, long qty) {
+        return new OpenQty() {
+            @Override
+            public String getStorageType() {
+                return storageType;
+            }
+
+            @Override
+            public String getMaterial() {
+                return material;
+            }
+
+            @Override
+            public Long getQty() {
+                return qty;
+            }
+        };
+    }
+}
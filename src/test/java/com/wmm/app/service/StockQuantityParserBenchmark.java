@@ -0,0 +1,96 @@
+package com.wmm.app.service;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH-сравнение разбора количества и нормализации заголовков: прежняя реализация на replace/replaceAll
+ * против {@link StockQuantityParser} и ручного {@code norm}.
+ * <p>
+ * Не запускается в составе тестов. Запуск после {@code ./mvnw test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(./mvnw -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.wmm.app.service.StockQuantityParserBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockQuantityParserBenchmark {
+
+    // типичные значения колонки Available Stock в выгрузках SAP
+    private final String[] quantities = { "1234", "1 234", "1\u00A0234", "12\u202F345,000", "1.234", "7", "0", "15-", "250,00" };
+    private final String[] rawNumbers = { "1234", "7", "0", "250", "12345", "-15", "3.5" };
+    private final String[] headers = { "Storage Type", "Material", "Material Description", "Available Stock", "Plant", "Batch" };
+
+    @Benchmark
+    public void legacyQuantity(Blackhole bh) {
+        for (String q : quantities) bh.consume(legacyGetInt(q));
+    }
+
+    @Benchmark
+    public void scannerQuantity(Blackhole bh) {
+        for (String q : quantities) bh.consume(StockQuantityParser.parse(q));
+    }
+
+    @Benchmark
+    public void legacyRawNumber(Blackhole bh) {
+        // прежний путь числовой ячейки: текст от форматтера, затем тот же regex-разбор
+        for (String r : rawNumbers) bh.consume(legacyGetInt(String.valueOf(Double.parseDouble(r)).replace(".0", "")));
+    }
+
+    @Benchmark
+    public void fastRawNumber(Blackhole bh) {
+        for (String r : rawNumbers) bh.consume(StockQuantityParser.parseRaw(r));
+    }
+
+    @Benchmark
+    public void legacyNorm(Blackhole bh) {
+        for (String h : headers) bh.consume(h.toLowerCase().replaceAll("[^a-z0-9]+", ""));
+    }
+
+    @Benchmark
+    public void scannerNorm(Blackhole bh) {
+        for (String h : headers) {
+            StringBuilder sb = new StringBuilder(h.length());
+            for (int i = 0; i < h.length(); i++) {
+                char ch = Character.toLowerCase(h.charAt(i));
+                if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) sb.append(ch);
+            }
+            bh.consume(sb.toString());
+        }
+    }
+
+    // копия прежнего InventoryImportService.getInt
+    private static int legacyGetInt(String v) {
+        v = v == null ? "" : v.trim();
+        if (v.isBlank()) return 0;
+        v = v.replace("\u00A0", "").replace("\u202F", "");
+        v = v.replaceAll("[^0-9-]", "");
+        if (v.isEmpty() || "-".equals(v)) return 0;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StockQuantityParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,53 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link StockQuantityParser}.
+ */
+class StockQuantityParserTest {
+
+    @Test
+    void parsesThousandsSeparators() {
+        assertThat(StockQuantityParser.parse("1234")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse(" 1 234 ")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1\u00A0234")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1\u202F234")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1.234")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1,234")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1.234.567")).isEqualTo(1234567);
+        assertThat(StockQuantityParser.parse("1'234")).isEqualTo(1234);
+    }
+
+    @Test
+    void dropsDecimalPart() {
+        assertThat(StockQuantityParser.parse("1\u00A0234,00")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1.234,5")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("1,234.56")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parse("12,5")).isEqualTo(12);
+        assertThat(StockQuantityParser.parse("7.0")).isEqualTo(7);
+    }
+
+    @Test
+    void handlesSignsAndGarbage() {
+        assertThat(StockQuantityParser.parse("-15")).isEqualTo(-15);
+        assertThat(StockQuantityParser.parse("15-")).isEqualTo(-15);
+        assertThat(StockQuantityParser.parse("12 шт")).isEqualTo(12);
+        assertThat(StockQuantityParser.parse("")).isZero();
+        assertThat(StockQuantityParser.parse("-")).isZero();
+        assertThat(StockQuantityParser.parse("n/a")).isZero();
+        assertThat(StockQuantityParser.parse(null)).isZero();
+        assertThat(StockQuantityParser.parse("99999999999")).isZero();
+    }
+
+    @Test
+    void parsesRawNumericCellValues() {
+        assertThat(StockQuantityParser.parseRaw("1234")).isEqualTo(1234);
+        assertThat(StockQuantityParser.parseRaw("-3")).isEqualTo(-3);
+        assertThat(StockQuantityParser.parseRaw("12.75")).isEqualTo(12);
+        assertThat(StockQuantityParser.parseRaw("1.5E3")).isEqualTo(1500);
+        assertThat(StockQuantityParser.parseRaw("")).isZero();
+    }
+}
@@ -0,0 +1,34 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Trigrams}.
+ */
+class TrigramsTest {
+
+    @Test
+    void wordSimilarityMatchesPgTrgm() {
+        // ожидаемые значения — из word_similarity() PostgreSQL 16
+        assertThat(similarity("word", "two words")).isCloseTo(0.8, within(1e-6));
+        assertThat(similarity("bold", "Bolt M8")).isCloseTo(0.6, within(1e-6));
+        assertThat(similarity("bolt m", "Bolt M8")).isCloseTo(6.0 / 7, within(1e-6));
+        assertThat(similarity("bolt m", "Anchor bolt")).isCloseTo(5.0 / 7, within(1e-6));
+        assertThat(similarity("m8 bolt", "Bolt M8")).isEqualTo(1.0);
+        assertThat(similarity("anchr", "Anchor bolt")).isCloseTo(4.0 / 6, within(1e-6));
+    }
+
+    @Test
+    void trigramsArePaddedPerWord() {
+        assertThat(Trigrams.of("М8, болт")).hasSize(3 + 5);
+        assertThat(Trigrams.of(" -- ")).isEmpty();
+        assertThat(similarity("", "Bolt")).isZero();
+    }
+
+    private static double similarity(String query, String text) {
+        return Trigrams.wordSimilarity(Trigrams.distinct(query), Trigrams.of(text));
+    }
+}
@@ -0,0 +1,109 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.wmm.app.repository.InventoryVisiblePerStorageRepositoryWithBulkRebuild.Key;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for {@link VisibleStockRecalcQueue}.
+ */
+class VisibleStockRecalcQueueTest {
+
+    private InventoryVisiblePerStorageService visibleService;
+    private ThreadPoolTaskScheduler scheduler;
+    private VisibleStockRecalcQueue queue;
+
+    @BeforeEach
+    void init() {
+        visibleService = mock(InventoryVisiblePerStorageService.class);
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        queue = new VisibleStockRecalcQueue(visibleService, scheduler);
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(queue);
+        queue.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void burstOfMarksIsFlushedOnceWithDistinctKeys() {
+        for (int i = 0; i < 50; i++) queue.markDirty("A", "m1");
+        queue.markDirty("A", "m2");
+
+        ArgumentCaptor<Collection<Key>> keys = ArgumentCaptor.forClass(Collection.class);
+        verify(visibleService, timeout(2000).times(1)).rebuildVisibleStock(keys.capture());
+        assertThat(keys.getValue()).containsExactlyInAnyOrder(new Key("A", "m1"), new Key("A", "m2"));
+    }
+
+    @Test
+    void transactionKeysAreQueuedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        queue.markDirty("A", "m1");
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        verify(visibleService, after(500).never()).rebuildVisibleStock(anyCollection());
+
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(visibleService, timeout(2000)).rebuildVisibleStock(List.of(new Key("A", "m1")));
+    }
+
+    @Test
+    void rolledBackKeysAreDropped() {
+        TransactionSynchronizationManager.initSynchronization();
+        queue.markDirty("A", "m1");
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        queue.flush();
+        verify(visibleService, never()).rebuildVisibleStock(anyCollection());
+    }
+
+    @Test
+    void failedRecalculationIsRetriedWithBackoff() {
+        doThrow(new IllegalStateException("db down"))
+            .doThrow(new IllegalStateException("db down"))
+            .doNothing()
+            .when(visibleService)
+            .rebuildVisibleStock(anyCollection());
+        long started = System.currentTimeMillis();
+
+        queue.markDirty("A", "m1");
+
+        verify(visibleService, timeout(5000).times(3)).rebuildVisibleStock(List.of(new Key("A", "m1")));
+        // 250 мс окна, затем паузы 500 и 1000 мс
+        assertThat(System.currentTimeMillis() - started).isGreaterThanOrEqualTo(1500);
+        verify(visibleService, after(1500).times(3)).rebuildVisibleStock(anyCollection());
+    }
+
+    @Test
+    void retryDelayIsCapped() {
+        assertThat(VisibleStockRecalcQueue.retryDelay(1)).isEqualTo(500);
+        assertThat(VisibleStockRecalcQueue.retryDelay(100)).isEqualTo(VisibleStockRecalcQueue.MAX_RETRY_DELAY_MS);
+    }
+}
@@ -0,0 +1,109 @@
+package com.wmm.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.wmm.app.web.rest.MechanicCatalogResource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for {@link VisibleStockStream}.
+ */
+class VisibleStockStreamTest {
+
+    private ThreadPoolTaskExecutor sender;
+    private VisibleStockStream stream;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void init() {
+        sender = new ThreadPoolTaskExecutor();
+        sender.initialize();
+        stream = new VisibleStockStream(sender);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+            new MechanicCatalogResource(mock(MechanicCatalogService.class), new CatalogVersions(), stream)
+        ).build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        stream.shutdown();
+        sender.shutdown();
+    }
+
+    @Test
+    void changesReachOnlySubscribersOfTheirStorage() throws Exception {
+        MockHttpServletResponse a01 = subscribe("A01");
+        MockHttpServletResponse b02 = subscribe("B02");
+
+        stream.publish("A01", Map.of("BOLT", 5));
+
+        awaitContent(a01, "{\"BOLT\":5}");
+        assertThat(a01.getContentAsString()).contains("event:stock");
+        stream.heartbeat();
+        awaitContent(b02, ":ping");
+        assertThat(b02.getContentAsString()).doesNotContain("BOLT");
+    }
+
+    @Test
+    void overflowingBufferTurnsIntoResync() throws Exception {
+        MockHttpServletResponse response = subscribe("A01");
+        Map<String, Integer> flood = new HashMap<>();
+        for (int i = 0; i <= VisibleStockStream.MAX_PENDING; i++) flood.put("M" + i, i);
+
+        stream.publish("A01", flood);
+
+        awaitContent(response, "event:resync");
+        assertThat(response.getContentAsString()).doesNotContain("M1");
+    }
+
+    @Test
+    void changesInsideTransactionArePublishedAfterCommit() throws Exception {
+        MockHttpServletResponse response = subscribe("A01");
+
+        TransactionSynchronizationManager.initSynchronization();
+        stream.publish("A01", Map.of("NUT", 7));
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Thread.sleep(200);
+        assertThat(response.getContentAsString()).doesNotContain("NUT");
+
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        awaitContent(response, "{\"NUT\":7}");
+    }
+
+    private MockHttpServletResponse subscribe(String storageType) throws Exception {
+        MockHttpServletResponse response = mockMvc
+            .perform(get("/api/mechanic/catalog/stream").param("storageType", storageType))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getResponse();
+        assertThat(stream.subscriberCount(storageType)).isPositive();
+        return response;
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(response.getContentAsString()).contains(expected);
+    }
+}